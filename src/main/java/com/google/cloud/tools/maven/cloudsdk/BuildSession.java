@@ -0,0 +1,240 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Identifies a build across the modules it builds, and runs actions when it ends. Maven hands each
+ * module a copy of the session, but every copy shares the execution request of the build, so state
+ * shared by the modules of a build is keyed by {@link #key}. Actions run when Maven ends the
+ * session, before the build result is logged, which unlike JVM shutdown hooks also works in long
+ * lived Maven daemons and embedders.
+ */
+public class BuildSession {
+
+  private static final Cache<MavenExecutionRequest, EndListener> listeners =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  private BuildSession() {}
+
+  /** Returns the key shared by every copy of {@code session} in the same build. */
+  public static Object key(MavenSession session) {
+    MavenExecutionRequest request = session.getRequest();
+    return request != null ? request : session;
+  }
+
+  /**
+   * Returns the projects of the build that run the plugin's {@code goal}: every project if it was
+   * requested on the command line, otherwise the projects that bind it in their build.
+   */
+  public static List<MavenProject> getProjectsRunning(MavenSession session, String goal) {
+    if (session.getGoals().stream().anyMatch(requested -> requested.endsWith(":" + goal))) {
+      return session.getProjects();
+    }
+    return session.getProjects().stream()
+        .filter(project -> bindsGoal(project, goal))
+        .collect(Collectors.toList());
+  }
+
+  private static boolean bindsGoal(MavenProject project, String goal) {
+    return project.getBuildPlugins().stream()
+        .filter(plugin -> "appengine-maven-plugin".equals(plugin.getArtifactId()))
+        .flatMap(plugin -> plugin.getExecutions().stream())
+        .anyMatch(execution -> execution.getGoals().contains(goal));
+  }
+
+  /**
+   * Runs {@code action} when the build of {@code session} ends. Actions run in the order they were
+   * registered. An action can fail the build by adding an exception to the session's result;
+   * runtime exceptions thrown by an action are added to it as well.
+   */
+  public static void onEnd(MavenSession session, Runnable action) {
+    MavenExecutionRequest request = session.getRequest();
+    if (request == null) {
+      // not run by Maven, so there is no end of build to wait for
+      return;
+    }
+    listeners
+        .asMap()
+        .computeIfAbsent(
+            request,
+            key -> {
+              EndListener listener = new EndListener(key.getExecutionListener());
+              key.setExecutionListener(listener);
+              return listener;
+            })
+        .add(action);
+  }
+
+  /**
+   * Forwards every event to the listener it replaced, running the actions when the session ends.
+   */
+  private static class EndListener implements ExecutionListener {
+
+    private final ExecutionListener delegate;
+    private final List<Runnable> actions = new ArrayList<>();
+
+    EndListener(ExecutionListener delegate) {
+      this.delegate = delegate;
+    }
+
+    synchronized void add(Runnable action) {
+      actions.add(action);
+    }
+
+    @Override
+    public void sessionEnded(ExecutionEvent event) {
+      List<Runnable> pending;
+      synchronized (this) {
+        pending = new ArrayList<>(actions);
+        actions.clear();
+      }
+      for (Runnable action : pending) {
+        try {
+          action.run();
+        } catch (RuntimeException ex) {
+          event.getSession().getResult().addException(ex);
+        }
+      }
+      if (delegate != null) {
+        delegate.sessionEnded(event);
+      }
+    }
+
+    @Override
+    public void projectDiscoveryStarted(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.projectDiscoveryStarted(event);
+      }
+    }
+
+    @Override
+    public void sessionStarted(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.sessionStarted(event);
+      }
+    }
+
+    @Override
+    public void projectSkipped(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.projectSkipped(event);
+      }
+    }
+
+    @Override
+    public void projectStarted(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.projectStarted(event);
+      }
+    }
+
+    @Override
+    public void projectSucceeded(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.projectSucceeded(event);
+      }
+    }
+
+    @Override
+    public void projectFailed(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.projectFailed(event);
+      }
+    }
+
+    @Override
+    public void mojoSkipped(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.mojoSkipped(event);
+      }
+    }
+
+    @Override
+    public void mojoStarted(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.mojoStarted(event);
+      }
+    }
+
+    @Override
+    public void mojoSucceeded(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.mojoSucceeded(event);
+      }
+    }
+
+    @Override
+    public void mojoFailed(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.mojoFailed(event);
+      }
+    }
+
+    @Override
+    public void forkStarted(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.forkStarted(event);
+      }
+    }
+
+    @Override
+    public void forkSucceeded(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.forkSucceeded(event);
+      }
+    }
+
+    @Override
+    public void forkFailed(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.forkFailed(event);
+      }
+    }
+
+    @Override
+    public void forkedProjectStarted(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.forkedProjectStarted(event);
+      }
+    }
+
+    @Override
+    public void forkedProjectSucceeded(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.forkedProjectSucceeded(event);
+      }
+    }
+
+    @Override
+    public void forkedProjectFailed(ExecutionEvent event) {
+      if (delegate != null) {
+        delegate.forkedProjectFailed(event);
+      }
+    }
+  }
+}
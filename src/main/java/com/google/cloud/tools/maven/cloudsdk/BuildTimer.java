@@ -0,0 +1,289 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Records the wall time of the phases of a build (Cloud SDK resolution, staging, deployment...) and
+ * the time spent in gcloud and appcfg processes within them, if the {@code metrics} parameter is
+ * set. The totals of every phase are written to {@code target/appengine-metrics/timings.json} of
+ * the top level project whenever a phase ends, and logged as a table when the build ends. A phase
+ * started within another phase on the same thread is marked with its parent, whose wall and
+ * subprocess times include it.
+ */
+public class BuildTimer {
+
+  private static final Cache<Object, BuildTimer> sessionTimers =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  private final Path reportFile;
+  private final Log log;
+  private final Ticker ticker;
+  private final Map<String, Totals> totals = new LinkedHashMap<>();
+  private final ThreadLocal<Deque<Phase>> openPhases = ThreadLocal.withInitial(ArrayDeque::new);
+
+  /**
+   * Creates a timer.
+   *
+   * @param reportFile the file the totals are written to, or null to not write them
+   * @param ticker the time source, or null to record nothing
+   */
+  @VisibleForTesting
+  BuildTimer(Path reportFile, Log log, Ticker ticker) {
+    this.reportFile = reportFile;
+    this.log = log;
+    this.ticker = ticker;
+  }
+
+  /**
+   * Returns the timer shared by all goals and modules of the build of {@code mojo}, or a timer
+   * recording nothing if {@code mojo} does not request metrics.
+   */
+  public static BuildTimer forMojo(CloudSdkMojo mojo) {
+    if (!mojo.isMetrics()) {
+      return new BuildTimer(null, mojo.getLog(), null);
+    }
+    MavenSession session = mojo.getMavenSession();
+    if (session == null) {
+      return new BuildTimer(null, mojo.getLog(), Ticker.systemTicker());
+    }
+    return sessionTimers
+        .asMap()
+        .computeIfAbsent(
+            BuildSession.key(session),
+            key -> {
+              BuildTimer timer =
+                  new BuildTimer(getReportFile(session), mojo.getLog(), Ticker.systemTicker());
+              BuildSession.onEnd(session, timer::logSummary);
+              return timer;
+            });
+  }
+
+  private static Path getReportFile(MavenSession session) {
+    MavenProject topLevelProject = session.getTopLevelProject();
+    if (topLevelProject != null
+        && topLevelProject.getBuild() != null
+        && topLevelProject.getBuild().getDirectory() != null) {
+      return Paths.get(
+          topLevelProject.getBuild().getDirectory(), "appengine-metrics", "timings.json");
+    }
+    String executionRoot = session.getExecutionRootDirectory();
+    return Paths.get(
+        executionRoot == null ? "." : executionRoot, "target", "appengine-metrics", "timings.json");
+  }
+
+  /** Starts timing a phase on the current thread, until the returned phase is closed. */
+  public Phase start(String name) {
+    if (ticker == null) {
+      Phase phase = new Phase(name, null, 0);
+      phase.closed = true;
+      return phase;
+    }
+    Deque<Phase> phases = openPhases.get();
+    Phase parent = phases.peek();
+    Phase phase = new Phase(name, parent == null ? null : parent.name, ticker.read());
+    phases.push(phase);
+    return phase;
+  }
+
+  /**
+   * Adds time spent in a process to every phase open on the current thread, so a phase's subprocess
+   * time includes that of the phases within it, like its wall time does.
+   */
+  void addSubprocessTime(long nanos) {
+    if (ticker == null) {
+      return;
+    }
+    for (Phase phase : openPhases.get()) {
+      phase.subprocessNanos += nanos;
+    }
+  }
+
+  private void end(Phase phase) {
+    long wallNanos = ticker.read() - phase.startNanos;
+    Deque<Phase> phases = openPhases.get();
+    phases.remove(phase);
+    synchronized (this) {
+      totals
+          .computeIfAbsent(phase.name, name -> new Totals(name, phase.parent))
+          .add(wallNanos, phase.subprocessNanos);
+    }
+    if (phases.isEmpty()) {
+      writeReport();
+    }
+  }
+
+  private synchronized List<Totals> snapshot() {
+    List<Totals> snapshot = new ArrayList<>();
+    for (Totals phaseTotals : totals.values()) {
+      snapshot.add(phaseTotals.copy());
+    }
+    return snapshot;
+  }
+
+  @VisibleForTesting
+  synchronized void writeReport() {
+    if (reportFile == null) {
+      return;
+    }
+    JsonArray phases = new JsonArray();
+    for (Totals phaseTotals : snapshot()) {
+      JsonObject phase = new JsonObject();
+      phase.addProperty("name", phaseTotals.name);
+      if (phaseTotals.parent != null) {
+        phase.addProperty("parent", phaseTotals.parent);
+      }
+      phase.addProperty("count", phaseTotals.count);
+      phase.addProperty("millis", TimeUnit.NANOSECONDS.toMillis(phaseTotals.wallNanos));
+      phase.addProperty("maxMillis", TimeUnit.NANOSECONDS.toMillis(phaseTotals.maxWallNanos));
+      phase.addProperty(
+          "subprocessMillis", TimeUnit.NANOSECONDS.toMillis(phaseTotals.subprocessNanos));
+      phases.add(phase);
+    }
+    JsonObject report = new JsonObject();
+    report.addProperty("updated", Instant.now().toString());
+    report.add("phases", phases);
+    try {
+      Path parent = reportFile.getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      Files.write(
+          reportFile,
+          new GsonBuilder()
+              .setPrettyPrinting()
+              .create()
+              .toJson(report)
+              .getBytes(StandardCharsets.UTF_8));
+    } catch (IOException ex) {
+      log.warn("Unable to write App Engine timings to " + reportFile, ex);
+    }
+  }
+
+  /** Logs the totals of every phase as a table. */
+  @VisibleForTesting
+  void logSummary() {
+    List<Totals> phases = snapshot();
+    if (phases.isEmpty()) {
+      return;
+    }
+    int width = phases.stream().mapToInt(phase -> getLabel(phase).length()).max().orElse(0);
+    String format = "  %-" + width + "s  %5s  %9s  %9s  %10s";
+    log.info("App Engine plugin timings:");
+    log.info(String.format(format, "phase", "count", "total", "max", "subprocess"));
+    for (Totals phase : phases) {
+      log.info(
+          String.format(
+              format,
+              getLabel(phase),
+              phase.count,
+              formatNanos(phase.wallNanos),
+              formatNanos(phase.maxWallNanos),
+              formatNanos(phase.subprocessNanos)));
+    }
+    if (phases.stream().anyMatch(phase -> phase.parent != null)) {
+      log.info("  * included in the time of its parent phase");
+    }
+    if (reportFile != null) {
+      log.info("App Engine plugin timings written to " + reportFile);
+    }
+  }
+
+  private static String getLabel(Totals phase) {
+    return phase.parent == null ? phase.name : phase.name + " *";
+  }
+
+  private static String formatNanos(long nanos) {
+    return String.format("%.1fs", nanos / 1e9);
+  }
+
+  /** A phase being timed; closing it records its time. */
+  public class Phase implements AutoCloseable {
+    private final String name;
+    private final String parent;
+    private final long startNanos;
+    private long subprocessNanos;
+    private boolean closed;
+
+    private Phase(String name, String parent, long startNanos) {
+      this.name = name;
+      this.parent = parent;
+      this.startNanos = startNanos;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        end(this);
+      }
+    }
+  }
+
+  private static class Totals {
+    private final String name;
+    private final String parent;
+    private int count;
+    private long wallNanos;
+    private long maxWallNanos;
+    private long subprocessNanos;
+
+    Totals(String name, String parent) {
+      this.name = name;
+      this.parent = parent;
+    }
+
+    void add(long wallNanos, long subprocessNanos) {
+      count++;
+      this.wallNanos += wallNanos;
+      this.maxWallNanos = Math.max(maxWallNanos, wallNanos);
+      this.subprocessNanos += subprocessNanos;
+    }
+
+    Totals copy() {
+      Totals copy = new Totals(name, parent);
+      copy.count = count;
+      copy.wallNanos = wallNanos;
+      copy.maxWallNanos = maxWallNanos;
+      copy.subprocessNanos = subprocessNanos;
+      return copy;
+    }
+  }
+}
@@ -32,20 +32,23 @@ import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkOutOfDateExc
 import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkVersionFileException;
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.LegacyProcessHandler;
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.NonZeroExceptionExitListener;
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessExitListener;
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandler;
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessOutputLineListener;
 import com.google.cloud.tools.managedcloudsdk.components.SdkComponent;
 import com.google.common.annotations.VisibleForTesting;
-import java.io.File;
+import com.google.common.base.Ticker;
 import java.io.IOException;
-import java.io.PrintStream;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import org.apache.maven.plugin.logging.Log;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import org.apache.maven.project.MavenProject;
 
 /** Factory for App Engine dependencies. */
 public class CloudSdkAppEngineFactory {
@@ -66,6 +69,11 @@ public class CloudSdkAppEngineFactory {
     return getAppCfg().newStaging(newDefaultProcessHandler());
   }
 
+  /** Returns the appengine-tools-api.jar that runs appcfg, including its JSP compilation. */
+  public Path getAppEngineToolsJar() {
+    return buildCloudSdkWithAppEngineComponents().getAppEngineToolsJar();
+  }
+
   /** Constructs an object used for app.yaml based staging. */
   public AppYamlProjectStaging appYamlStaging() {
     return new AppYamlProjectStaging();
@@ -83,7 +91,22 @@ public class CloudSdkAppEngineFactory {
 
   /** Constructs a dev server in async mode. */
   public DevServer devServerRunAsync(int startSuccessTimeout) {
-    return getDevServers().newDevAppServer(newDevAppServerAsyncHandler(startSuccessTimeout));
+    return devServerRunAsync(startSuccessTimeout, null, null);
+  }
+
+  /**
+   * Constructs a dev server in async mode.
+   *
+   * @param outputListener notified of each line the dev server process outputs, or null
+   * @param exitListener notified when the dev server process exits, or null
+   */
+  public DevServer devServerRunAsync(
+      int startSuccessTimeout,
+      ProcessOutputLineListener outputListener,
+      ProcessExitListener exitListener) {
+    return getDevServers()
+        .newDevAppServer(
+            newDevAppServerAsyncHandler(startSuccessTimeout, outputListener, exitListener));
   }
 
   /** Constructs a dev server for the stop goal. */
@@ -97,20 +120,43 @@ public class CloudSdkAppEngineFactory {
   }
 
   private CloudSdk buildCloudSdkMinimal() {
-    return buildCloudSdk(
-        mojo,
-        new CloudSdkChecker(),
-        new CloudSdkDownloader(CloudSdkDownloader.newManagedSdkFactory()),
-        false);
+    return getCachedCloudSdk(false);
   }
 
   @VisibleForTesting
   CloudSdk buildCloudSdkWithAppEngineComponents() {
-    return buildCloudSdk(
-        mojo,
-        new CloudSdkChecker(),
-        new CloudSdkDownloader(CloudSdkDownloader.newManagedSdkFactory()),
-        true);
+    return getCachedCloudSdk(true);
+  }
+
+  /** Resolves the Cloud SDK once per build, shared by all goals and modules of the build. */
+  private CloudSdk getCachedCloudSdk(boolean requiresAppEngineComponents) {
+    Supplier<CloudSdk> loader =
+        () -> {
+          try (BuildTimer.Phase phase = BuildTimer.forMojo(mojo).start("cloudsdk.resolve")) {
+            return buildCloudSdk(
+                mojo,
+                new CloudSdkChecker(),
+                new CloudSdkDownloader(
+                    CloudSdkDownloader.newManagedSdkFactory(), getCloudSdkMetricsFile()),
+                requiresAppEngineComponents);
+          }
+        };
+    if (mojo.getMavenSession() == null) {
+      return loader.get();
+    }
+    return CloudSdkCache.forSession(mojo.getMavenSession())
+        .get(mojo, requiresAppEngineComponents, loader);
+  }
+
+  /** Where the durations of Cloud SDK installation tasks are recorded, if there is a project. */
+  private Path getCloudSdkMetricsFile() {
+    MavenProject project = mojo.getMavenProject();
+    if (project == null
+        || project.getBuild() == null
+        || project.getBuild().getDirectory() == null) {
+      return null;
+    }
+    return Paths.get(project.getBuild().getDirectory(), "appengine-metrics", "cloud-sdk.json");
   }
 
   static CloudSdk buildCloudSdk(
@@ -124,11 +170,13 @@ public class CloudSdkAppEngineFactory {
         // if user defined
         CloudSdk cloudSdk = new CloudSdk.Builder().sdkPath(mojo.getCloudSdkHome()).build();
 
-        if (mojo.getCloudSdkVersion() != null) {
-          cloudSdkChecker.checkCloudSdk(cloudSdk, mojo.getCloudSdkVersion());
-        }
-        if (requiresAppEngineComponents) {
-          cloudSdkChecker.checkForAppEngine(cloudSdk);
+        try (BuildTimer.Phase phase = BuildTimer.forMojo(mojo).start("cloudsdk.validate")) {
+          if (mojo.getCloudSdkVersion() != null) {
+            cloudSdkChecker.checkCloudSdk(cloudSdk, mojo.getCloudSdkVersion());
+          }
+          if (requiresAppEngineComponents) {
+            cloudSdkChecker.checkForAppEngine(cloudSdk);
+          }
         }
         return cloudSdk;
       } else {
@@ -143,7 +191,8 @@ public class CloudSdkAppEngineFactory {
                     mojo.getCloudSdkVersion(),
                     mojo.getLog(),
                     requiredComponents,
-                    mojo.getMavenSession().isOffline()))
+                    mojo.getMavenSession().isOffline(),
+                    mojo.getCloudSdkUpdateCheckInterval()))
             .build();
       }
     } catch (CloudSdkNotFoundException
@@ -171,16 +220,97 @@ public class CloudSdkAppEngineFactory {
     return DevServers.builder(buildCloudSdkWithAppEngineComponents()).build();
   }
 
-  private ProcessHandler newDefaultProcessHandler() {
-    ProcessOutputLineListener lineListener = new DefaultProcessOutputLineListener(mojo.getLog());
-    return LegacyProcessHandler.builder()
-        .addStdOutLineListener(lineListener)
-        .addStdErrLineListener(lineListener)
-        .setExitListener(new NonZeroExceptionExitListener())
+  @VisibleForTesting
+  ProcessHandler newDefaultProcessHandler() {
+    ProcessOutputFilter outputFilter = newOutputFilter();
+    Path outputFile = mojo.getOutputFile();
+    AtomicLong processStart = new AtomicLong();
+    LegacyProcessHandler.Builder builder =
+        LegacyProcessHandler.builder()
+            .addStdOutLineListener(outputFilter)
+            .addStdErrLineListener(outputFilter)
+            .setStartListener(process -> processStart.set(System.nanoTime()));
+    if (outputFile == null) {
+      return builder.setExitListener(newExitListener(outputFilter, null, processStart)).build();
+    }
+    createParentDirectories(outputFile);
+    // opened on the first line, so a process failing to start leaves no writer thread behind
+    AtomicReference<FileOutputLineListener> fileListener = new AtomicReference<>();
+    Object fileListenerLock = new Object();
+    ProcessOutputLineListener fileOutput =
+        line -> {
+          synchronized (fileListenerLock) {
+            if (fileListener.get() == null) {
+              fileListener.set(newOutputFileListener(outputFile));
+            }
+          }
+          fileListener.get().onOutputLine(line);
+        };
+    return builder
+        .addStdOutLineListener(fileOutput)
+        .addStdErrLineListener(fileOutput)
+        .setExitListener(newExitListener(outputFilter, fileListener::get, processStart))
         .build();
   }
 
-  private ProcessHandler newDevAppServerAsyncHandler(int timeout) {
+  @VisibleForTesting
+  ProcessOutputFilter newOutputFilter() {
+    return new ProcessOutputFilter(
+        mojo.getLog(),
+        compile(mojo.getOutputInclude()),
+        compile(mojo.getOutputExclude()),
+        mojo.getOutputFile() == null,
+        mojo.getOutputRateLimit(),
+        Ticker.systemTicker());
+  }
+
+  private static Pattern compile(String regex) {
+    return regex == null || regex.isEmpty() ? null : Pattern.compile(regex);
+  }
+
+  private static void createParentDirectories(Path outputFile) {
+    Path parent = outputFile.toAbsolutePath().getParent();
+    try {
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+    } catch (IOException ex) {
+      throw new RuntimeException("Failed to create the gcloud output directory.", ex);
+    }
+  }
+
+  private FileOutputLineListener newOutputFileListener(Path outputFile) {
+    return new FileOutputLineListener(
+        outputFile, "gcloud output", "gcloud-output-writer", mojo.getLog(), true);
+  }
+
+  /**
+   * Records the run time of the process in the phase being timed, summarizes the output, closes the
+   * output file, then fails on non-zero exit codes.
+   *
+   * @param processStart start time of the process in nanoseconds, set by the start listener of
+   *     synchronous handlers, whose exit listener runs on the thread that started the process
+   */
+  private ProcessExitListener newExitListener(
+      ProcessOutputFilter outputFilter,
+      Supplier<FileOutputLineListener> fileListener,
+      AtomicLong processStart) {
+    ProcessExitListener nonZeroExitListener = new NonZeroExceptionExitListener();
+    return exitCode -> {
+      if (processStart != null && processStart.get() != 0) {
+        BuildTimer.forMojo(mojo).addSubprocessTime(System.nanoTime() - processStart.get());
+      }
+      FileOutputLineListener file = fileListener == null ? null : fileListener.get();
+      if (file != null) {
+        file.close();
+      }
+      outputFilter.finish(file == null ? null : mojo.getOutputFile());
+      nonZeroExitListener.onExit(exitCode);
+    };
+  }
+
+  private ProcessHandler newDevAppServerAsyncHandler(
+      int timeout, ProcessOutputLineListener outputListener, ProcessExitListener exitListener) {
     Path logDir =
         Paths.get(mojo.getMavenProject().getBuild().getDirectory()).resolve("dev-appserver-out");
     if (!Files.exists(logDir)) {
@@ -190,65 +320,62 @@ public class CloudSdkAppEngineFactory {
         throw new RuntimeException("Failed to create dev-appserver logging directory.");
       }
     }
-    File logFile = logDir.resolve("dev_appserver.out").toFile();
-    FileOutputLineListener fileListener = new FileOutputLineListener(logFile);
+    Path logFile = logDir.resolve("dev_appserver.out");
+    FileOutputLineListener fileListener = newDevAppServerLogListener(logFile);
     mojo.getLog().info("Dev App Server output written to : " + logFile);
 
-    ProcessOutputLineListener lineListener = new DefaultProcessOutputLineListener(mojo.getLog());
+    ProcessOutputFilter lineListener = newOutputFilter();
 
-    return LegacyProcessHandler.builder()
-        .addStdOutLineListener(lineListener)
-        .addStdOutLineListener(fileListener)
-        .addStdErrLineListener(lineListener)
-        .addStdErrLineListener(fileListener)
-        .setExitListener(new NonZeroExceptionExitListener())
+    LegacyProcessHandler.Builder builder =
+        LegacyProcessHandler.builder()
+            .addStdOutLineListener(lineListener)
+            .addStdOutLineListener(fileListener)
+            .addStdErrLineListener(lineListener)
+            .addStdErrLineListener(fileListener);
+    if (outputListener != null) {
+      builder.addStdOutLineListener(outputListener).addStdErrLineListener(outputListener);
+    }
+    return builder
+        .setExitListener(notifyFirst(exitListener, newExitListener(lineListener, null, null)))
         .buildDevAppServerAsync(timeout);
   }
 
-  public ConfigReader newConfigReader() {
-    return new ConfigReader(getGcloud());
+  /** Returns an exit listener notifying {@code first}, if any, before {@code then}. */
+  private static ProcessExitListener notifyFirst(
+      ProcessExitListener first, ProcessExitListener then) {
+    if (first == null) {
+      return then;
+    }
+    return exitCode -> {
+      first.onExit(exitCode);
+      then.onExit(exitCode);
+    };
   }
 
   /**
-   * Default output listener that copies output to the Maven Mojo logger with a 'GCLOUD: ' prefix.
+   * Creates the listener writing the output of a Dev App Server running in the background, which
+   * outlives the goal starting it, so the file is closed when the build ends.
    */
-  static class DefaultProcessOutputLineListener implements ProcessOutputLineListener {
-
-    private final Log log;
-
-    DefaultProcessOutputLineListener(Log log) {
-      this.log = log;
-    }
-
-    @Override
-    public void onOutputLine(String line) {
-      log.info("GCLOUD: " + line);
+  @VisibleForTesting
+  FileOutputLineListener newDevAppServerLogListener(Path logFile) {
+    FileOutputLineListener fileListener =
+        new FileOutputLineListener(
+            logFile, "Dev App Server output", "dev-appserver-log-writer", mojo.getLog(), false);
+    if (mojo.getMavenSession() != null) {
+      BuildSession.onEnd(mojo.getMavenSession(), fileListener::close);
     }
+    return fileListener;
   }
 
-  /** A listener that redirects process output to a file. */
-  static class FileOutputLineListener implements ProcessOutputLineListener {
-
-    private final PrintStream logFilePrinter;
-
-    FileOutputLineListener(final File logFile) {
-      try {
-        logFilePrinter = new PrintStream(logFile, StandardCharsets.UTF_8.name());
-        Runtime.getRuntime()
-            .addShutdownHook(
-                new Thread() {
-                  public void run() {
-                    logFilePrinter.close();
-                  }
-                });
-      } catch (IOException ex) {
-        throw new RuntimeException(ex);
-      }
-    }
-
-    @Override
-    public void onOutputLine(String line) {
-      logFilePrinter.println(line);
+  /**
+   * Returns a config reader shared by the whole build, so gcloud config is only read once. The
+   * Cloud SDK is not resolved until the reader has to run gcloud.
+   */
+  public ConfigReader newConfigReader() {
+    if (mojo.getMavenSession() == null) {
+      return new ConfigReader(this::getGcloud, BuildTimer.forMojo(mojo));
     }
+    return CloudSdkCache.forSession(mojo.getMavenSession())
+        .getConfigReader(mojo, () -> new ConfigReader(this::getGcloud, BuildTimer.forMojo(mojo)));
   }
 }
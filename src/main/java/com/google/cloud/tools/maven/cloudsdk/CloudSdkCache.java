@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.cloud.tools.appengine.operations.CloudSdk;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Cloud SDKs and gcloud configurations resolved during a build, shared by every goal and module of
+ * the build so the SDK is only downloaded, updated and validated once, and its configuration only
+ * read once.
+ */
+class CloudSdkCache {
+
+  /** Caches by build, see {@link BuildSession#key}. */
+  private static final Cache<Object, CloudSdkCache> sessionCaches =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  private final Cache<Key, CloudSdk> cloudSdks = CacheBuilder.newBuilder().build();
+  private final Cache<List<Object>, ConfigReader> configReaders = CacheBuilder.newBuilder().build();
+
+  /** Returns the cache of a build, shared by the session copies of all its modules. */
+  static CloudSdkCache forSession(MavenSession session) {
+    return sessionCaches
+        .asMap()
+        .computeIfAbsent(BuildSession.key(session), key -> new CloudSdkCache());
+  }
+
+  /**
+   * Returns the Cloud SDK configured by {@code mojo}, resolving it with {@code loader} only if no
+   * goal of the build has resolved it yet. An SDK validated with the App Engine components also
+   * satisfies requests that do not require them. Failures are not cached.
+   */
+  CloudSdk get(CloudSdkMojo mojo, boolean requiresAppEngineComponents, Supplier<CloudSdk> loader) {
+    Key key = new Key(mojo, requiresAppEngineComponents);
+    if (!requiresAppEngineComponents) {
+      CloudSdk withAppEngineComponents = cloudSdks.getIfPresent(new Key(mojo, true));
+      if (withAppEngineComponents != null) {
+        return withAppEngineComponents;
+      }
+    }
+    try {
+      return cloudSdks.get(key, loader::get);
+    } catch (UncheckedExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw ex;
+    } catch (ExecutionException ex) {
+      // the loader cannot throw checked exceptions
+      throw new RuntimeException(ex.getCause());
+    }
+  }
+
+  /**
+   * Returns the config reader of the Cloud SDK and credentials configured by {@code mojo}, creating
+   * it with {@code factory} only if no goal of the build has created one yet.
+   */
+  ConfigReader getConfigReader(CloudSdkMojo mojo, Supplier<ConfigReader> factory) {
+    List<Object> key =
+        Arrays.asList(
+            mojo.getCloudSdkHome(), mojo.getCloudSdkVersion(), mojo.getServiceAccountKeyFile());
+    return configReaders.asMap().computeIfAbsent(key, ignored -> factory.get());
+  }
+
+  private static class Key {
+    private final Path cloudSdkHome;
+    private final String cloudSdkVersion;
+    private final boolean requiresAppEngineComponents;
+    private final boolean offline;
+
+    Key(CloudSdkMojo mojo, boolean requiresAppEngineComponents) {
+      this.cloudSdkHome = mojo.getCloudSdkHome();
+      this.cloudSdkVersion = mojo.getCloudSdkVersion();
+      this.requiresAppEngineComponents = requiresAppEngineComponents;
+      this.offline = mojo.getMavenSession().isOffline();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return requiresAppEngineComponents == key.requiresAppEngineComponents
+          && offline == key.offline
+          && Objects.equals(cloudSdkHome, key.cloudSdkHome)
+          && Objects.equals(cloudSdkVersion, key.cloudSdkVersion);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(cloudSdkHome, cloudSdkVersion, requiresAppEngineComponents, offline);
+    }
+  }
+}
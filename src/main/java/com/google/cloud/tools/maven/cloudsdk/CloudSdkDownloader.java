@@ -21,61 +21,126 @@ import com.google.cloud.tools.managedcloudsdk.ConsoleListener;
 import com.google.cloud.tools.managedcloudsdk.ManagedCloudSdk;
 import com.google.cloud.tools.managedcloudsdk.ManagedSdkVerificationException;
 import com.google.cloud.tools.managedcloudsdk.ManagedSdkVersionMismatchException;
-import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import com.google.cloud.tools.managedcloudsdk.UnsupportedOsException;
 import com.google.cloud.tools.managedcloudsdk.Version;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExecutionException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExitException;
 import com.google.cloud.tools.managedcloudsdk.components.SdkComponent;
 import com.google.cloud.tools.managedcloudsdk.install.SdkInstallerException;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import org.apache.maven.plugin.logging.Log;
 
 public class CloudSdkDownloader {
 
   private final Function<String, ManagedCloudSdk> managedCloudSdkFactory;
+  private final Path metricsFile;
+  private final Clock clock;
 
   public CloudSdkDownloader(Function<String, ManagedCloudSdk> managedCloudSdkFactory) {
+    this(managedCloudSdkFactory, null);
+  }
+
+  /**
+   * Creates a downloader that records the duration and throughput of every installation task in
+   * {@code metricsFile}, if not null.
+   */
+  public CloudSdkDownloader(
+      Function<String, ManagedCloudSdk> managedCloudSdkFactory, Path metricsFile) {
+    this(managedCloudSdkFactory, metricsFile, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  CloudSdkDownloader(
+      Function<String, ManagedCloudSdk> managedCloudSdkFactory, Path metricsFile, Clock clock) {
     this.managedCloudSdkFactory = managedCloudSdkFactory;
+    this.metricsFile = metricsFile;
+    this.clock = clock;
   }
 
   /**
-   * Downloads/installs/updates the Cloud SDK.
+   * Downloads/installs/updates the Cloud SDK. Concurrent calls for the same SDK, from this or other
+   * processes, are serialized.
    *
+   * @param updateCheckInterval how long a successful update check stays valid, updates are checked
+   *     on every call if null or zero
    * @return The cloud SDK installation directory
    */
   public Path downloadIfNecessary(
-      String version, Log log, List<SdkComponent> components, boolean offline) {
+      String version,
+      Log log,
+      List<SdkComponent> components,
+      boolean offline,
+      Duration updateCheckInterval) {
     ManagedCloudSdk managedCloudSdk = managedCloudSdkFactory.apply(version);
     if (offline) { // in offline mode, don't download anything
       return managedCloudSdk.getSdkHome();
     }
-    try {
-      ProgressListener progressListener = new NoOpProgressListener();
+    // concurrent builds wait for the one installing or updating the SDK, then reuse the result
+    try (SdkInstallLock lock = SdkInstallLock.acquire(managedCloudSdk.getSdkHome(), log)) {
+      LoggingProgressListener progressListener = new LoggingProgressListener(log);
       ConsoleListener consoleListener = new CloudSdkDownloaderConsoleListener(log);
 
+      boolean cacheUpdateCheck = updateCheckInterval != null && !updateCheckInterval.isZero();
+      boolean checkForUpdates = true;
       if (!managedCloudSdk.isInstalled()) {
         managedCloudSdk.newInstaller().install(progressListener, consoleListener);
+      } else if (cacheUpdateCheck
+          && isUpdateCheckRecent(managedCloudSdk.getSdkHome(), updateCheckInterval, log)) {
+        log.debug("Cloud SDK update check skipped, last checked less than " + updateCheckInterval);
+        checkForUpdates = false;
       }
 
-      // install requested components
-      if (components != null) {
-        for (SdkComponent component : components) {
-          if (!managedCloudSdk.hasComponent(component)) {
-            managedCloudSdk
-                .newComponentInstaller()
-                .installComponent(component, progressListener, consoleListener);
-          }
+      // check for updates while the requested components are probed, both start gcloud
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      boolean upToDate = true;
+      List<SdkComponent> missingComponents;
+      try {
+        Future<Boolean> upToDateCheck =
+            checkForUpdates ? executor.submit(managedCloudSdk::isUpToDate) : null;
+        missingComponents = findMissingComponents(managedCloudSdk, components);
+        if (upToDateCheck != null) {
+          upToDate = getUpToDate(upToDateCheck);
         }
+      } finally {
+        executor.shutdownNow();
       }
 
-      if (!managedCloudSdk.isUpToDate()) {
+      // install all missing components with a single gcloud invocation
+      if (!missingComponents.isEmpty()) {
+        log.info("Installing Cloud SDK components: " + missingComponents);
+        managedCloudSdk
+            .newComponentInstaller()
+            .installComponents(missingComponents, progressListener, consoleListener);
+      }
+
+      if (!upToDate) {
         managedCloudSdk.newUpdater().update(progressListener, consoleListener);
       }
+      if (checkForUpdates && cacheUpdateCheck) {
+        writeUpdateCheck(managedCloudSdk.getSdkHome(), log);
+      }
+      if (metricsFile != null && !progressListener.getFinishedTasks().isEmpty()) {
+        writeMetrics(managedCloudSdk.getSdkHome(), progressListener.getFinishedTasks(), log);
+      }
 
       return managedCloudSdk.getSdkHome();
     } catch (IOException
@@ -89,6 +154,105 @@ public class CloudSdkDownloader {
     }
   }
 
+  /** Location of the record of the last successful update check of an SDK. */
+  static Path getUpdateCheckFile(Path sdkHome) {
+    return sdkHome.resolveSibling(sdkHome.getFileName() + ".last-update-check");
+  }
+
+  private boolean isUpdateCheckRecent(Path sdkHome, Duration updateCheckInterval, Log log) {
+    Path updateCheckFile = getUpdateCheckFile(sdkHome);
+    if (!Files.isRegularFile(updateCheckFile)) {
+      return false;
+    }
+    try {
+      Instant lastCheck =
+          Instant.ofEpochMilli(
+              Long.parseLong(
+                  new String(Files.readAllBytes(updateCheckFile), StandardCharsets.UTF_8).trim()));
+      Instant now = clock.instant();
+      return !lastCheck.isAfter(now) && lastCheck.plus(updateCheckInterval).isAfter(now);
+    } catch (IOException | NumberFormatException ex) {
+      log.debug("Ignoring unreadable Cloud SDK update check record " + updateCheckFile, ex);
+      return false;
+    }
+  }
+
+  private void writeUpdateCheck(Path sdkHome, Log log) {
+    Path updateCheckFile = getUpdateCheckFile(sdkHome);
+    try {
+      Files.write(
+          updateCheckFile,
+          Long.toString(clock.millis()).getBytes(StandardCharsets.UTF_8),
+          StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+    } catch (IOException ex) {
+      // the next build simply checks for updates again
+      log.debug("Unable to write Cloud SDK update check record " + updateCheckFile, ex);
+    }
+  }
+
+  private void writeMetrics(Path sdkHome, List<LoggingProgressListener.Task> tasks, Log log) {
+    JsonArray taskMetrics = new JsonArray();
+    for (LoggingProgressListener.Task task : tasks) {
+      JsonObject taskMetric = new JsonObject();
+      taskMetric.addProperty("name", task.getName());
+      taskMetric.addProperty("millis", task.getMillis());
+      taskMetric.addProperty(task.isBytes() ? "bytes" : "units", task.getUnits());
+      if (task.isBytes() && task.getMillis() > 0) {
+        taskMetric.addProperty("bytesPerSecond", task.getUnits() * 1000 / task.getMillis());
+      }
+      taskMetrics.add(taskMetric);
+    }
+    JsonObject metrics = new JsonObject();
+    metrics.addProperty("sdkHome", sdkHome.toString());
+    metrics.addProperty("finished", Instant.now(clock).toString());
+    metrics.add("tasks", taskMetrics);
+    try {
+      Path parent = metricsFile.getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      Files.write(
+          metricsFile,
+          new GsonBuilder()
+              .setPrettyPrinting()
+              .create()
+              .toJson(metrics)
+              .getBytes(StandardCharsets.UTF_8));
+    } catch (IOException ex) {
+      log.warn("Unable to write Cloud SDK metrics to " + metricsFile, ex);
+    }
+  }
+
+  private static List<SdkComponent> findMissingComponents(
+      ManagedCloudSdk managedCloudSdk, List<SdkComponent> components)
+      throws ManagedSdkVerificationException {
+    List<SdkComponent> missingComponents = new ArrayList<>();
+    if (components != null) {
+      for (SdkComponent component : components) {
+        if (!managedCloudSdk.hasComponent(component) && !missingComponents.contains(component)) {
+          missingComponents.add(component);
+        }
+      }
+    }
+    return missingComponents;
+  }
+
+  private static boolean getUpToDate(Future<Boolean> upToDateCheck)
+      throws ManagedSdkVerificationException, InterruptedException {
+    try {
+      return upToDateCheck.get();
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof ManagedSdkVerificationException) {
+        throw (ManagedSdkVerificationException) ex.getCause();
+      }
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw new RuntimeException(ex.getCause());
+    }
+  }
+
   // for delayed instantiation because it can error unnecessarily
   static Function<String, ManagedCloudSdk> newManagedSdkFactory() {
     return (version) -> {
@@ -19,6 +19,7 @@ package com.google.cloud.tools.maven.cloudsdk;
 import com.google.common.annotations.VisibleForTesting;
 import java.io.File;
 import java.nio.file.Path;
+import java.time.Duration;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Plugin;
 import org.apache.maven.plugin.AbstractMojo;
@@ -38,6 +39,13 @@ public abstract class CloudSdkMojo extends AbstractMojo {
   @Parameter(property = "cloudSdkVersion", required = false)
   private String cloudSdkVersion;
 
+  /**
+   * Optional parameter to skip update checks of the managed Google Cloud SDK for the given number
+   * of hours after the last successful check. Updates are checked on every build if 0.
+   */
+  @Parameter(property = "cloudSdkUpdateCheckInterval", defaultValue = "0")
+  private long cloudSdkUpdateCheckInterval;
+
   /** Optional parameter to configure the key file used for gcloud authentication. */
   @Parameter(property = "serviceAccountKeyFile", required = false)
   private File serviceAccountKeyFile;
@@ -46,6 +54,35 @@ public abstract class CloudSdkMojo extends AbstractMojo {
   @Parameter(property = "gcloud.verbosity")
   private String verbosity;
 
+  /**
+   * Optional regular expression; only gcloud and Dev App Server output lines matching it are
+   * logged. Warnings and errors are always logged.
+   */
+  @Parameter(property = "gcloud.output.include")
+  private String outputInclude;
+
+  /** Optional regular expression; gcloud and Dev App Server output lines matching it are hidden. */
+  @Parameter(property = "gcloud.output.exclude")
+  private String outputExclude;
+
+  /** Optional maximum number of output lines logged per second, unlimited if 0. */
+  @Parameter(property = "gcloud.output.rateLimit", defaultValue = "0")
+  private int outputRateLimit;
+
+  /**
+   * Optional file the full gcloud output is appended to, it is never rotated or truncated. When
+   * set, only warnings, errors, lines matching {@code outputInclude} and a summary are logged.
+   */
+  @Parameter(property = "gcloud.output.file")
+  private File outputFile;
+
+  /**
+   * Optional parameter to record the time spent in each phase of the build, written to {@code
+   * target/appengine-metrics/timings.json} and logged when the build ends.
+   */
+  @Parameter(property = "app.metrics", defaultValue = "false")
+  private boolean metrics;
+
   @Parameter(defaultValue = "${plugin}", readonly = true)
   protected PluginDescriptor pluginDescriptor;
 
@@ -76,6 +113,10 @@ public abstract class CloudSdkMojo extends AbstractMojo {
     return cloudSdkVersion;
   }
 
+  public Duration getCloudSdkUpdateCheckInterval() {
+    return Duration.ofHours(cloudSdkUpdateCheckInterval);
+  }
+
   public Path getServiceAccountKeyFile() {
     return (serviceAccountKeyFile == null) ? null : serviceAccountKeyFile.toPath();
   }
@@ -84,6 +125,26 @@ public abstract class CloudSdkMojo extends AbstractMojo {
     return verbosity;
   }
 
+  public String getOutputInclude() {
+    return outputInclude;
+  }
+
+  public String getOutputExclude() {
+    return outputExclude;
+  }
+
+  public int getOutputRateLimit() {
+    return outputRateLimit;
+  }
+
+  public Path getOutputFile() {
+    return outputFile == null ? null : outputFile.toPath();
+  }
+
+  public boolean isMetrics() {
+    return metrics;
+  }
+
   public CloudSdkAppEngineFactory getAppEngineFactory() {
     return factory;
   }
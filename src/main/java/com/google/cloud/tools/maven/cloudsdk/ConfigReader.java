@@ -18,36 +18,89 @@ package com.google.cloud.tools.maven.cloudsdk;
 
 import com.google.cloud.tools.appengine.operations.Gcloud;
 import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkNotFoundException;
-import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkOutOfDateException;
-import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkVersionFileException;
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandlerException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.gson.JsonSyntaxException;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Supplier;
 
 public class ConfigReader {
   public static final String APPENGINE_CONFIG = "APPENGINE_CONFIG";
   public static final String GCLOUD_CONFIG = "GCLOUD_CONFIG";
 
-  private final Gcloud gcloud;
+  private final Supplier<Gcloud> gcloud;
+  private final GcloudConfigDirectory configDirectory;
+  private final BuildTimer timer;
+  private GcloudConfig config;
 
-  // use CloudSdkAppEngineFactory to instantiate
-  ConfigReader(Gcloud gcloud) {
+  /**
+   * Use CloudSdkAppEngineFactory to instantiate.
+   *
+   * @param gcloud supplies gcloud, only called if the configuration cannot be read from disk, so
+   *     the Cloud SDK is only resolved when gcloud has to run
+   */
+  ConfigReader(Supplier<Gcloud> gcloud, BuildTimer timer) {
+    this(gcloud, GcloudConfigDirectory.fromEnvironment(), timer);
+  }
+
+  @VisibleForTesting
+  ConfigReader(Supplier<Gcloud> gcloud, GcloudConfigDirectory configDirectory, BuildTimer timer) {
     this.gcloud = gcloud;
+    this.configDirectory = configDirectory;
+    this.timer = timer;
+  }
+
+  /**
+   * Return the active gcloud configuration. It is read on first use only, the same snapshot is
+   * returned afterwards. The configuration is read from the gcloud config directory, gcloud itself
+   * is only started if no project can be found there.
+   */
+  public GcloudConfig getConfig() {
+    try {
+      return readConfig();
+    } catch (CloudSdkNotFoundException
+        | IOException
+        | ProcessHandlerException
+        | JsonSyntaxException ex) {
+      throw new RuntimeException("Failed to read gcloud config", ex);
+    }
   }
 
   /** Return gcloud config property for project, or error out if not found. */
   public String getProjectId() {
     try {
-      String gcloudProject = gcloud.getConfig().getProject();
+      String gcloudProject = readConfig().getProject();
       if (gcloudProject == null || gcloudProject.trim().isEmpty()) {
         throw new RuntimeException("Project was not found in gcloud config");
       }
       return gcloudProject;
     } catch (CloudSdkNotFoundException
-        | CloudSdkOutOfDateException
-        | CloudSdkVersionFileException
         | IOException
-        | ProcessHandlerException ex) {
+        | ProcessHandlerException
+        | JsonSyntaxException ex) {
       throw new RuntimeException("Failed to read project from gcloud config", ex);
     }
   }
+
+  private synchronized GcloudConfig readConfig()
+      throws CloudSdkNotFoundException, IOException, ProcessHandlerException {
+    if (config != null) {
+      return config;
+    }
+    try (BuildTimer.Phase phase = timer.start("config.read")) {
+      GcloudConfig fromDisk;
+      try {
+        fromDisk = configDirectory.read();
+      } catch (IOException ex) {
+        fromDisk = null;
+      }
+      config =
+          fromDisk != null && fromDisk.getProject() != null
+              ? fromDisk
+              : GcloudConfig.fromJson(
+                  gcloud.get().runCommand(Arrays.asList("config", "list", "--format=json")));
+    }
+    return config;
+  }
 }
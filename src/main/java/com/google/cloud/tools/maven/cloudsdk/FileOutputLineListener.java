@@ -0,0 +1,242 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessOutputLineListener;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * A listener that redirects process output to a file. Lines are handed to a dedicated writer thread
+ * through a bounded queue, so the threads reading the process output never wait on disk I/O unless
+ * the queue is full. The writer thread writes lines in batches and flushes them when the queue runs
+ * empty or every flush interval. A file it overwrites is rotated once it grows past a maximum size,
+ * a file it appends to is left whole.
+ */
+class FileOutputLineListener implements ProcessOutputLineListener, Closeable {
+
+  private static final int QUEUE_CAPACITY = 8192;
+  private static final int BATCH_SIZE = 512;
+  private static final long FLUSH_INTERVAL_MILLIS = 200;
+  private static final long MAX_FILE_BYTES = 10L * 1024 * 1024;
+  private static final int MAX_ROTATED_FILES = 3;
+  private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+  private final Path logFile;
+  private final String description;
+  private final Log log;
+  private final BlockingQueue<String> queue;
+  private final long flushIntervalMillis;
+  private final long maxFileBytes;
+  private final int maxRotatedFiles;
+  private final Thread writerThread;
+
+  private volatile boolean closed;
+
+  // only used by the writer thread once it is started
+  private Writer writer;
+  private long fileBytes;
+  private boolean failed;
+
+  /**
+   * Creates a listener that appends to {@code logFile} if {@code append} is true, without rotating
+   * it, or else overwrites and rotates it.
+   *
+   * @param description the output written, for example "gcloud output", named in warnings
+   * @param threadName name of the writer thread, identifying the output it writes
+   */
+  FileOutputLineListener(
+      Path logFile, String description, String threadName, Log log, boolean append) {
+    this(
+        logFile,
+        description,
+        threadName,
+        log,
+        append,
+        QUEUE_CAPACITY,
+        FLUSH_INTERVAL_MILLIS,
+        append ? Long.MAX_VALUE : MAX_FILE_BYTES,
+        MAX_ROTATED_FILES);
+  }
+
+  @VisibleForTesting
+  FileOutputLineListener(
+      Path logFile,
+      String description,
+      String threadName,
+      Log log,
+      boolean append,
+      int queueCapacity,
+      long flushIntervalMillis,
+      long maxFileBytes,
+      int maxRotatedFiles) {
+    this.logFile = logFile;
+    this.description = description;
+    this.log = log;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.maxFileBytes = maxFileBytes;
+    this.maxRotatedFiles = maxRotatedFiles;
+    try {
+      if (append) {
+        fileBytes = Files.exists(logFile) ? Files.size(logFile) : 0;
+        writer =
+            Files.newBufferedWriter(
+                logFile,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+      } else {
+        writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8);
+      }
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+    writerThread = new Thread(this::drain, threadName);
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  @Override
+  public void onOutputLine(String line) {
+    if (closed) {
+      return;
+    }
+    try {
+      queue.put(line);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Writes the queued lines and closes the file, waiting a few seconds at most. */
+  @Override
+  public void close() {
+    closed = true;
+    try {
+      writerThread.join(CLOSE_TIMEOUT_MILLIS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void drain() {
+    List<String> batch = new ArrayList<>(BATCH_SIZE);
+    long lastFlush = System.nanoTime();
+    try {
+      while (true) {
+        String line = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (line == null) {
+          if (closed && queue.isEmpty()) {
+            break;
+          }
+          continue;
+        }
+        batch.add(line);
+        queue.drainTo(batch, BATCH_SIZE - 1);
+        write(batch);
+        batch.clear();
+        long now = System.nanoTime();
+        if (queue.isEmpty()
+            || TimeUnit.NANOSECONDS.toMillis(now - lastFlush) >= flushIntervalMillis) {
+          flush();
+          lastFlush = now;
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } finally {
+      try {
+        writer.close();
+      } catch (IOException ex) {
+        fail(ex);
+      }
+    }
+  }
+
+  private void write(List<String> lines) {
+    if (failed) {
+      return;
+    }
+    try {
+      for (String line : lines) {
+        // counts chars rather than encoded bytes, close enough for rotation
+        long lineBytes = line.length() + 1L;
+        if (fileBytes > 0 && fileBytes + lineBytes > maxFileBytes) {
+          rotate();
+        }
+        writer.write(line);
+        writer.write('\n');
+        fileBytes += lineBytes;
+      }
+    } catch (IOException ex) {
+      fail(ex);
+    }
+  }
+
+  private void flush() {
+    if (failed) {
+      return;
+    }
+    try {
+      writer.flush();
+    } catch (IOException ex) {
+      fail(ex);
+    }
+  }
+
+  /** Moves the log file to {@code .1} and each {@code .N} to {@code .N+1}, dropping the oldest. */
+  private void rotate() throws IOException {
+    writer.close();
+    for (int index = maxRotatedFiles - 1; index >= 1; index--) {
+      Path rotated = getRotatedFile(logFile, index);
+      if (Files.exists(rotated)) {
+        Files.move(
+            rotated, getRotatedFile(logFile, index + 1), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    if (maxRotatedFiles > 0) {
+      Files.move(logFile, getRotatedFile(logFile, 1), StandardCopyOption.REPLACE_EXISTING);
+    }
+    writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8);
+    fileBytes = 0;
+  }
+
+  private void fail(IOException ex) {
+    if (!failed) {
+      failed = true;
+      log.warn("Failed to write " + description + " to " + logFile + ": " + ex.getMessage());
+    }
+  }
+
+  static Path getRotatedFile(Path logFile, int index) {
+    return logFile.resolveSibling(logFile.getFileName() + "." + index);
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Snapshot of the properties of the active gcloud configuration. */
+public class GcloudConfig {
+
+  private final Map<String, String> properties;
+
+  GcloudConfig(Map<String, String> properties) {
+    this.properties = Collections.unmodifiableMap(new TreeMap<>(properties));
+  }
+
+  /** Parses the output of {@code gcloud config list --format=json}. */
+  static GcloudConfig fromJson(String json) throws JsonSyntaxException {
+    Map<String, String> properties = new TreeMap<>();
+    JsonElement root = JsonParser.parseString(json);
+    if (root.isJsonObject()) {
+      for (Map.Entry<String, JsonElement> section : root.getAsJsonObject().entrySet()) {
+        if (!section.getValue().isJsonObject()) {
+          continue;
+        }
+        JsonObject values = section.getValue().getAsJsonObject();
+        for (Map.Entry<String, JsonElement> property : values.entrySet()) {
+          if (property.getValue().isJsonPrimitive()) {
+            properties.put(
+                section.getKey() + "/" + property.getKey(), property.getValue().getAsString());
+          }
+        }
+      }
+    }
+    return new GcloudConfig(properties);
+  }
+
+  /**
+   * Returns a property value, or null if it is not set.
+   *
+   * @param section the property section, for example "core" or "compute"
+   * @param name the property name within its section
+   */
+  public String getProperty(String section, String name) {
+    return properties.get(section + "/" + name);
+  }
+
+  /** Returns all set properties keyed by "section/name". */
+  public Map<String, String> getProperties() {
+    return properties;
+  }
+
+  public String getProject() {
+    return getProperty("core", "project");
+  }
+
+  public String getAccount() {
+    return getProperty("core", "account");
+  }
+
+  public String getRegion() {
+    return getProperty("compute", "region");
+  }
+
+  public String getZone() {
+    return getProperty("compute", "zone");
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the active gcloud configuration straight from the gcloud config directory, the same way
+ * gcloud resolves it, without starting a gcloud process.
+ */
+class GcloudConfigDirectory {
+
+  /** Property sections that can be overridden with CLOUDSDK_SECTION_NAME environment variables. */
+  private static final Set<String> ENVIRONMENT_SECTIONS =
+      ImmutableSet.of("app", "auth", "billing", "compute", "core", "run");
+
+  private final Map<String, String> environment;
+  private final Path userHome;
+  private final boolean windows;
+
+  GcloudConfigDirectory(Map<String, String> environment, Path userHome, boolean windows) {
+    this.environment = environment;
+    this.userHome = userHome;
+    this.windows = windows;
+  }
+
+  /** Creates a reader for the environment of this process. */
+  static GcloudConfigDirectory fromEnvironment() {
+    return new GcloudConfigDirectory(
+        System.getenv(),
+        Paths.get(System.getProperty("user.home")),
+        System.getProperty("os.name").toLowerCase(Locale.ENGLISH).startsWith("windows"));
+  }
+
+  /** Returns the gcloud config directory, or null if it cannot be determined. */
+  Path getConfigDirectory() {
+    String cloudSdkConfig = environment.get("CLOUDSDK_CONFIG");
+    if (cloudSdkConfig != null && !cloudSdkConfig.isEmpty()) {
+      return Paths.get(cloudSdkConfig);
+    }
+    if (windows) {
+      String appData = environment.get("APPDATA");
+      return appData == null ? null : Paths.get(appData, "gcloud");
+    }
+    return userHome.resolve(".config").resolve("gcloud");
+  }
+
+  /** Returns the name of the active configuration. */
+  String getActiveConfigName(Path configDirectory) throws IOException {
+    String activeConfigName = environment.get("CLOUDSDK_ACTIVE_CONFIG_NAME");
+    if (activeConfigName != null && !activeConfigName.isEmpty()) {
+      return activeConfigName;
+    }
+    Path activeConfig = configDirectory.resolve("active_config");
+    if (Files.isRegularFile(activeConfig)) {
+      String name = new String(Files.readAllBytes(activeConfig), StandardCharsets.UTF_8).trim();
+      if (!name.isEmpty()) {
+        return name;
+      }
+    }
+    return "default";
+  }
+
+  /**
+   * Reads the active configuration with environment variable overrides applied. If the active
+   * configuration file does not exist, the configuration only holds the environment overrides.
+   */
+  GcloudConfig read() throws IOException {
+    Map<String, String> properties = new HashMap<>();
+    Path configDirectory = getConfigDirectory();
+    if (configDirectory != null) {
+      Path configFile =
+          configDirectory
+              .resolve("configurations")
+              .resolve("config_" + getActiveConfigName(configDirectory));
+      if (Files.isRegularFile(configFile)) {
+        properties = parseProperties(Files.readAllLines(configFile));
+      }
+    }
+
+    for (Map.Entry<String, String> variable : environment.entrySet()) {
+      String key = variable.getKey();
+      if (!key.startsWith("CLOUDSDK_") || variable.getValue().isEmpty()) {
+        continue;
+      }
+      String[] sectionAndName = key.substring("CLOUDSDK_".length()).split("_", 2);
+      String section = sectionAndName[0].toLowerCase(Locale.ENGLISH);
+      if (sectionAndName.length == 2 && ENVIRONMENT_SECTIONS.contains(section)) {
+        properties.put(
+            section + "/" + sectionAndName[1].toLowerCase(Locale.ENGLISH), variable.getValue());
+      }
+    }
+    return new GcloudConfig(properties);
+  }
+
+  /** Parses the INI format of gcloud configuration files into "section/name" keyed properties. */
+  static Map<String, String> parseProperties(List<String> lines) {
+    Map<String, String> properties = new HashMap<>();
+    String section = null;
+    for (String rawLine : lines) {
+      String line = rawLine.trim();
+      if (line.isEmpty() || line.startsWith("#") || line.startsWith(";")) {
+        continue;
+      }
+      if (line.startsWith("[") && line.endsWith("]")) {
+        section = line.substring(1, line.length() - 1).trim();
+        continue;
+      }
+      int separator = line.indexOf('=');
+      if (section != null && separator > 0) {
+        String name = line.substring(0, separator).trim();
+        String value = line.substring(separator + 1).trim();
+        if (!value.isEmpty()) {
+          properties.put(section + "/" + name, value);
+        }
+      }
+    }
+    return properties;
+  }
+}
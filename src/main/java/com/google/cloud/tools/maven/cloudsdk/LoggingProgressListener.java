@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import com.google.common.base.Ticker;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Reports the progress of Cloud SDK installation tasks through the Maven log at throttled
+ * intervals, with throughput and estimated time remaining, and keeps the duration of every finished
+ * task. Download progress is reported in bytes, other tasks in the units they report (for example
+ * extracted entries).
+ */
+class LoggingProgressListener implements ProgressListener {
+
+  static final long DEFAULT_INTERVAL_MILLIS = 2000;
+
+  private final Log log;
+  private final Ticker ticker;
+  private final long intervalNanos;
+  private final List<Task> finishedTasks;
+
+  private String message;
+  private long total = UNKNOWN;
+  private long worked;
+  private long startNanos;
+  private long lastReportNanos;
+  private boolean bytes;
+
+  LoggingProgressListener(Log log) {
+    this(log, Ticker.systemTicker(), DEFAULT_INTERVAL_MILLIS);
+  }
+
+  LoggingProgressListener(Log log, Ticker ticker, long intervalMillis) {
+    this(log, ticker, TimeUnit.MILLISECONDS.toNanos(intervalMillis), new ArrayList<>());
+  }
+
+  private LoggingProgressListener(
+      Log log, Ticker ticker, long intervalNanos, List<Task> finishedTasks) {
+    this.log = log;
+    this.ticker = ticker;
+    this.intervalNanos = intervalNanos;
+    this.finishedTasks = finishedTasks;
+  }
+
+  @Override
+  public void start(String message, long totalWork) {
+    this.message = message;
+    this.total = totalWork;
+    this.worked = 0;
+    this.bytes = message.startsWith("Downloading");
+    this.startNanos = ticker.read();
+    this.lastReportNanos = startNanos;
+    log.info(message);
+  }
+
+  @Override
+  public void update(long workDone) {
+    worked += workDone;
+    long now = ticker.read();
+    if (now - lastReportNanos >= intervalNanos) {
+      lastReportNanos = now;
+      log.info(formatProgress(now));
+    }
+  }
+
+  @Override
+  public void update(String message) {
+    log.info(message);
+  }
+
+  @Override
+  public void done() {
+    if (message == null) {
+      return;
+    }
+    long millis = TimeUnit.NANOSECONDS.toMillis(ticker.read() - startNanos);
+    synchronized (finishedTasks) {
+      finishedTasks.add(new Task(message, millis, worked, bytes));
+    }
+    StringBuilder summary = new StringBuilder(message).append(": done in ");
+    summary.append(formatSeconds(millis));
+    if (worked > 0 && millis > 0) {
+      summary.append(" (").append(formatRate(worked * 1000.0 / millis)).append(')');
+    }
+    log.info(summary.toString());
+  }
+
+  @Override
+  public ProgressListener newChild(long allocation) {
+    return new LoggingProgressListener(log, ticker, intervalNanos, finishedTasks);
+  }
+
+  /** Returns the tasks finished by this listener and its children, in order of completion. */
+  List<Task> getFinishedTasks() {
+    synchronized (finishedTasks) {
+      return Collections.unmodifiableList(new ArrayList<>(finishedTasks));
+    }
+  }
+
+  private String formatProgress(long now) {
+    StringBuilder progress = new StringBuilder(message).append(": ").append(formatAmount(worked));
+    if (total > 0) {
+      progress
+          .append(" / ")
+          .append(formatAmount(total))
+          .append(String.format(Locale.ROOT, " (%d%%)", worked * 100 / total));
+    }
+    double seconds = (now - startNanos) / 1e9;
+    if (seconds > 0 && worked > 0) {
+      double rate = worked / seconds;
+      progress.append(", ").append(formatRate(rate));
+      if (total > worked) {
+        progress.append(", ETA ").append(formatSeconds((long) ((total - worked) / rate * 1000)));
+      }
+    }
+    return progress.toString();
+  }
+
+  private String formatAmount(long amount) {
+    return bytes
+        ? String.format(Locale.ROOT, "%.1f MB", amount / (1024.0 * 1024.0))
+        : Long.toString(amount);
+  }
+
+  private String formatRate(double perSecond) {
+    return bytes
+        ? String.format(Locale.ROOT, "%.1f MB/s", perSecond / (1024.0 * 1024.0))
+        : String.format(Locale.ROOT, "%.0f/s", perSecond);
+  }
+
+  private static String formatSeconds(long millis) {
+    return String.format(Locale.ROOT, "%.1fs", millis / 1000.0);
+  }
+
+  /** A finished installation task. */
+  static class Task {
+    private final String name;
+    private final long millis;
+    private final long units;
+    private final boolean bytes;
+
+    Task(String name, long millis, long units, boolean bytes) {
+      this.name = name;
+      this.millis = millis;
+      this.units = units;
+      this.bytes = bytes;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    long getMillis() {
+      return millis;
+    }
+
+    long getUnits() {
+      return units;
+    }
+
+    boolean isBytes() {
+      return bytes;
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessOutputLineListener;
+import com.google.common.base.Ticker;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Copies process output to the Maven log with a 'GCLOUD: ' prefix. Lines starting with a warning or
+ * error level are logged at that level and always shown. Other lines can be filtered with include
+ * and exclude patterns and rate limited, in which case a summary of the hidden lines is logged when
+ * the process exits.
+ */
+class ProcessOutputFilter implements ProcessOutputLineListener {
+
+  private static final String PREFIX = "GCLOUD: ";
+  private static final Pattern LEVEL = Pattern.compile("^\\W*(WARNING|WARN|ERROR|SEVERE|FATAL)\\b");
+
+  private final Log log;
+  private final Pattern include;
+  private final Pattern exclude;
+  private final boolean showByDefault;
+  private final int linesPerSecond;
+  private final Ticker ticker;
+
+  private long lines;
+  private long warnings;
+  private long errors;
+  private long hidden;
+  private long windowStart;
+  private int windowLines;
+  private long windowSuppressed;
+
+  /**
+   * Creates a filter.
+   *
+   * @param include if not null, only other lines matching it are shown
+   * @param exclude if not null, other lines matching it are hidden
+   * @param showByDefault whether other lines are shown if {@code include} is null
+   * @param linesPerSecond maximum number of other lines shown per second, unlimited if 0
+   */
+  ProcessOutputFilter(
+      Log log,
+      Pattern include,
+      Pattern exclude,
+      boolean showByDefault,
+      int linesPerSecond,
+      Ticker ticker) {
+    this.log = log;
+    this.include = include;
+    this.exclude = exclude;
+    this.showByDefault = showByDefault;
+    this.linesPerSecond = linesPerSecond;
+    this.ticker = ticker;
+    this.windowStart = ticker.read();
+  }
+
+  /** Creates a filter showing every line. */
+  ProcessOutputFilter(Log log) {
+    this(log, null, null, true, 0, Ticker.systemTicker());
+  }
+
+  @Override
+  public synchronized void onOutputLine(String line) {
+    lines++;
+    Matcher level = LEVEL.matcher(line);
+    if (level.find()) {
+      String name = level.group(1);
+      if (name.startsWith("WARN")) {
+        warnings++;
+        log.warn(PREFIX + line);
+      } else {
+        errors++;
+        log.error(PREFIX + line);
+      }
+      return;
+    }
+    if (!isShown(line)) {
+      hidden++;
+      return;
+    }
+    if (isRateLimited()) {
+      hidden++;
+      windowSuppressed++;
+      return;
+    }
+    log.info(PREFIX + line);
+  }
+
+  private boolean isShown(String line) {
+    boolean shown = include == null ? showByDefault : include.matcher(line).find();
+    return shown && (exclude == null || !exclude.matcher(line).find());
+  }
+
+  private boolean isRateLimited() {
+    if (linesPerSecond <= 0) {
+      return false;
+    }
+    long now = ticker.read();
+    if (now - windowStart >= TimeUnit.SECONDS.toNanos(1)) {
+      reportSuppressed();
+      windowStart = now;
+      windowLines = 0;
+    }
+    return ++windowLines > linesPerSecond;
+  }
+
+  private void reportSuppressed() {
+    if (windowSuppressed > 0) {
+      log.info(PREFIX + "... " + windowSuppressed + " line(s) suppressed by the rate limit");
+      windowSuppressed = 0;
+    }
+  }
+
+  /**
+   * Logs a summary of the output once the process has exited, if any line was hidden or the output
+   * was also written to a file.
+   *
+   * @param outputFile the file the full output was written to, or null
+   */
+  synchronized void finish(Path outputFile) {
+    reportSuppressed();
+    if (hidden == 0 && outputFile == null) {
+      return;
+    }
+    StringBuilder summary =
+        new StringBuilder(PREFIX)
+            .append(lines)
+            .append(" line(s) of output, ")
+            .append(warnings)
+            .append(" warning(s), ")
+            .append(errors)
+            .append(" error(s), ")
+            .append(hidden)
+            .append(" not shown");
+    if (outputFile != null) {
+      summary.append("; full output in ").append(outputFile);
+    }
+    log.info(summary.toString());
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Exclusive lock on a managed Cloud SDK installation, held while it is installed, inspected or
+ * updated so concurrent builds on the same host wait for each other and reuse the result instead of
+ * racing. File locks are held on behalf of the whole JVM, so threads of the same build are also
+ * serialized with an in-process lock.
+ */
+class SdkInstallLock implements AutoCloseable {
+
+  private static final ConcurrentMap<Path, ReentrantLock> processLocks = new ConcurrentHashMap<>();
+
+  private final ReentrantLock processLock;
+  private final FileChannel channel;
+  private final FileLock fileLock;
+
+  private SdkInstallLock(ReentrantLock processLock, FileChannel channel, FileLock fileLock) {
+    this.processLock = processLock;
+    this.channel = channel;
+    this.fileLock = fileLock;
+  }
+
+  /** Location of the lock file of an SDK. */
+  static Path getLockFile(Path sdkHome) {
+    return sdkHome.resolveSibling(sdkHome.getFileName() + ".lock");
+  }
+
+  /** Blocks until this thread holds the lock of the SDK installed at {@code sdkHome}. */
+  static SdkInstallLock acquire(Path sdkHome, Log log) throws IOException, InterruptedException {
+    Path lockFile = getLockFile(sdkHome.toAbsolutePath().normalize());
+    ReentrantLock processLock = processLocks.computeIfAbsent(lockFile, key -> new ReentrantLock());
+    if (!processLock.tryLock()) {
+      log.info("Waiting for another build thread to finish setting up the Cloud SDK...");
+      processLock.lockInterruptibly();
+    }
+    FileChannel channel = null;
+    try {
+      Path parent = lockFile.getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      FileLock fileLock = channel.tryLock();
+      if (fileLock == null) {
+        log.info("Waiting for another process to finish setting up the Cloud SDK at " + sdkHome);
+        fileLock = channel.lock();
+      }
+      return new SdkInstallLock(processLock, channel, fileLock);
+    } catch (IOException | RuntimeException ex) {
+      if (channel != null) {
+        channel.close();
+      }
+      processLock.unlock();
+      throw ex;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      fileLock.release();
+      channel.close();
+    } finally {
+      processLock.unlock();
+    }
+  }
+}
@@ -17,6 +17,8 @@
 package com.google.cloud.tools.maven.deploy;
 
 import com.google.cloud.tools.maven.stage.AbstractStageMojo;
+import java.io.File;
+import java.nio.file.Path;
 import org.apache.maven.plugins.annotations.Parameter;
 
 /** Mojo configuration for Deploy with Staging inherited. */
@@ -60,6 +62,20 @@ public abstract class AbstractDeployMojo extends AbstractStageMojo {
   @Parameter(alias = "deploy.version", property = "app.deploy.version")
   private String version;
 
+  /**
+   * Skip the deployment when the staged application and the deploy configuration are identical to
+   * the last successful deployment recorded in {@code fingerprintFile}.
+   */
+  @Parameter(alias = "deploy.skipUnchanged", property = "app.deploy.skipUnchanged")
+  private boolean skipUnchanged;
+
+  /** The file recording the last successful deployment, used by {@code skipUnchanged}. */
+  @Parameter(
+      defaultValue = "${project.build.directory}/appengine-deploy.fingerprint",
+      alias = "deploy.fingerprintFile",
+      property = "app.deploy.fingerprintFile")
+  private File fingerprintFile;
+
   /** The Google Cloud Platform project Id to use for this invocation. */
   @Deprecated
   @Parameter(alias = "deploy.project", property = "app.deploy.project")
@@ -115,4 +131,12 @@ public abstract class AbstractDeployMojo extends AbstractStageMojo {
   public String getGcloudMode() {
     return gcloudMode;
   }
+
+  public boolean isSkipUnchanged() {
+    return skipUnchanged;
+  }
+
+  public Path getFingerprintFile() {
+    return fingerprintFile == null ? null : fingerprintFile.toPath();
+  }
 }
@@ -19,16 +19,23 @@ package com.google.cloud.tools.maven.deploy;
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
 import com.google.cloud.tools.appengine.configuration.DeployProjectConfigurationConfiguration;
+import com.google.cloud.tools.maven.cloudsdk.BuildTimer;
 import com.google.cloud.tools.maven.stage.Stager;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.apache.maven.plugin.MojoExecutionException;
 
 public class AppDeployer implements Deployer {
 
+  /** The configuration types that can be deployed on their own, by yaml file name. */
+  static final List<String> CONFIG_TYPES =
+      ImmutableList.of("cron", "dispatch", "dos", "index", "queue");
+
   @VisibleForTesting final Stager stager;
   @VisibleForTesting final Path appengineDirectory;
   private final AbstractDeployMojo deployMojo;
@@ -48,16 +55,22 @@ public class AppDeployer implements Deployer {
 
   /** Deploy a single application (and no project configuration). */
   public void deploy() throws MojoExecutionException {
+    DeployConfiguration config = prepareDeploy();
+
+    runDeployment(config, "App Engine application deployment failed");
+  }
+
+  /** Stage a single application and build its deploy configuration. */
+  public DeployConfiguration prepareDeploy() throws MojoExecutionException {
     stager.stage();
 
-    DeployConfiguration config =
-        configBuilder.buildDeployConfiguration(ImmutableList.of(deployMojo.getStagingDirectory()));
+    return configBuilder.buildDeployConfiguration(
+        ImmutableList.of(deployMojo.getStagingDirectory()));
+  }
 
-    try {
-      deployMojo.getAppEngineFactory().deployment().deploy(config);
-    } catch (AppEngineException ex) {
-      throw new MojoExecutionException("App Engine application deployment failed", ex);
-    }
+  @Override
+  public boolean deployPrepared(DeployConfiguration config) throws MojoExecutionException {
+    return runDeployment(config, "App Engine application deployment failed");
   }
 
   /** Deploy a single application and any found yaml configuration files. */
@@ -86,17 +99,106 @@ public class AppDeployer implements Deployer {
     DeployConfiguration config =
         configBuilder.buildDeployConfiguration(computedDeployables.build());
 
-    try {
+    runDeployment(config, "Failed to deploy");
+  }
+
+  /**
+   * Deploys {@code config}, unless skipping unchanged deployments is enabled and the fingerprint of
+   * the last successful deployment matches.
+   *
+   * @return true if it was deployed, false if it was skipped as unchanged
+   */
+  private boolean runDeployment(DeployConfiguration config, String failureMessage)
+      throws MojoExecutionException {
+    DeployFingerprint deployFingerprint = null;
+    String fingerprint = null;
+    if (deployMojo.isSkipUnchanged()) {
+      deployFingerprint = new DeployFingerprint(deployMojo.getFingerprintFile());
+      try {
+        fingerprint = DeployFingerprint.compute(config);
+        if (deployFingerprint.matches(fingerprint)) {
+          deployMojo
+              .getLog()
+              .info(
+                  "Skipping deployment: the staged application and deploy configuration are"
+                      + " unchanged since the last successful deployment.");
+          return false;
+        }
+      } catch (IOException ex) {
+        throw new MojoExecutionException("Unable to compute the deployment fingerprint.", ex);
+      }
+    }
+
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(deployMojo).start("deploy")) {
       deployMojo.getAppEngineFactory().deployment().deploy(config);
+    } catch (AppEngineException ex) {
+      throw new MojoExecutionException(failureMessage, ex);
+    }
+
+    if (deployFingerprint != null) {
+      try {
+        deployFingerprint.write(fingerprint);
+      } catch (IOException ex) {
+        throw new MojoExecutionException("Unable to record the deployment fingerprint.", ex);
+      }
+    }
+    return true;
+  }
+
+  /** Deploy the requested configuration files with a single gcloud invocation. */
+  public void deployConfigs(List<String> configTypes) throws MojoExecutionException {
+    boolean explicit = configTypes != null && !configTypes.isEmpty();
+    List<String> types = explicit ? configTypes : CONFIG_TYPES;
+    for (String type : types) {
+      if (!CONFIG_TYPES.contains(type)) {
+        throw new MojoExecutionException(
+            "Unknown configuration type '" + type + "', expected one of " + CONFIG_TYPES);
+      }
+    }
+
+    stager.stageConfigs();
+    ImmutableList.Builder<Path> yamls = ImmutableList.builder();
+    for (String type : types) {
+      Path yaml = appengineDirectory.resolve(type + ".yaml");
+      if (Files.exists(yaml)) {
+        yamls.add(yaml);
+      } else if (explicit) {
+        throw new MojoExecutionException(
+            "Failed to deploy configs: could not find " + type + ".yaml in " + appengineDirectory);
+      }
+    }
+    List<Path> deployables = yamls.build();
+    if (deployables.isEmpty()) {
+      deployMojo.getLog().info("No configuration files found in " + appengineDirectory);
+      return;
+    }
+
+    String names =
+        deployables.stream()
+            .map(yaml -> String.valueOf(yaml.getFileName()))
+            .collect(Collectors.joining(", "));
+    deployMojo.getLog().info("Deploying " + names + " with a single gcloud invocation");
+    long start = System.nanoTime();
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(deployMojo).start("deploy.configs")) {
+      deployMojo
+          .getAppEngineFactory()
+          .deployment()
+          .deploy(configBuilder.buildDeployConfigsConfiguration(deployables));
     } catch (AppEngineException ex) {
       throw new MojoExecutionException("Failed to deploy", ex);
     }
+    deployMojo
+        .getLog()
+        .info(
+            String.format(
+                "Deployed %s in %.1fs with 1 gcloud invocation instead of %d",
+                names, (System.nanoTime() - start) / 1e9, deployables.size()));
   }
 
   /** Deploy only cron.yaml. */
   public void deployCron() throws MojoExecutionException {
-    stager.stage();
-    try {
+    stager.stageConfigs();
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(deployMojo).start("deploy.cron")) {
       deployMojo
           .getAppEngineFactory()
           .deployment()
@@ -109,8 +211,8 @@ public class AppDeployer implements Deployer {
 
   /** Deploy only dispatch.yaml. */
   public void deployDispatch() throws MojoExecutionException {
-    stager.stage();
-    try {
+    stager.stageConfigs();
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(deployMojo).start("deploy.dispatch")) {
       deployMojo
           .getAppEngineFactory()
           .deployment()
@@ -123,8 +225,8 @@ public class AppDeployer implements Deployer {
 
   /** Deploy only dos.yaml. */
   public void deployDos() throws MojoExecutionException {
-    stager.stage();
-    try {
+    stager.stageConfigs();
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(deployMojo).start("deploy.dos")) {
       deployMojo
           .getAppEngineFactory()
           .deployment()
@@ -137,8 +239,8 @@ public class AppDeployer implements Deployer {
 
   /** Deploy only index.yaml. */
   public void deployIndex() throws MojoExecutionException {
-    stager.stage();
-    try {
+    stager.stageConfigs();
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(deployMojo).start("deploy.index")) {
       deployMojo
           .getAppEngineFactory()
           .deployment()
@@ -151,8 +253,8 @@ public class AppDeployer implements Deployer {
 
   /** Deploy only queue.yaml. */
   public void deployQueue() throws MojoExecutionException {
-    stager.stage();
-    try {
+    stager.stageConfigs();
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(deployMojo).start("deploy.queue")) {
       deployMojo
           .getAppEngineFactory()
           .deployment()
@@ -186,6 +288,13 @@ public class AppDeployer implements Deployer {
           .build();
     }
 
+    DeployConfiguration buildDeployConfigsConfiguration(List<Path> configYamls) {
+      return DeployConfiguration.builder(configYamls)
+          .projectId(configProcessor.processProjectId(deployMojo.getProjectId()))
+          .server(deployMojo.getServer())
+          .build();
+    }
+
     DeployProjectConfigurationConfiguration buildDeployProjectConfigurationConfiguration(
         Path appengineDirectory) {
       return DeployProjectConfigurationConfiguration.builder(appengineDirectory)
@@ -21,11 +21,18 @@ import static com.google.cloud.tools.maven.cloudsdk.ConfigReader.GCLOUD_CONFIG;
 
 import com.google.cloud.tools.maven.cloudsdk.ConfigReader;
 import com.google.common.annotations.VisibleForTesting;
+import java.util.function.Supplier;
 
 public class ConfigProcessor {
-  private final ConfigReader configReader;
+  private final Supplier<ConfigReader> configReader;
 
-  public ConfigProcessor(ConfigReader configReader) {
+  /**
+   * Creates a processor.
+   *
+   * @param configReader supplies the gcloud config reader, only called if a value has to be read
+   *     from the gcloud configuration
+   */
+  public ConfigProcessor(Supplier<ConfigReader> configReader) {
     this.configReader = configReader;
   }
 
@@ -49,7 +56,7 @@ public class ConfigProcessor {
     if (projectId == null || projectId.trim().isEmpty() || projectId.equals(APPENGINE_CONFIG)) {
       throw new IllegalArgumentException(PROJECT_ERROR);
     } else if (projectId.equals(GCLOUD_CONFIG)) {
-      return configReader.getProjectId();
+      return configReader.get().getProjectId();
     }
     return projectId;
   }
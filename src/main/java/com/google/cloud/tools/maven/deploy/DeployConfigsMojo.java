@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import java.util.List;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/** Deploy several configuration files to Google App Engine with a single gcloud invocation. */
+@Mojo(name = "deployConfigs", defaultPhase = LifecyclePhase.DEPLOY)
+public class DeployConfigsMojo extends AbstractDeployMojo {
+
+  /**
+   * The configuration files to deploy: any of cron, dispatch, dos, index and queue. Deploys every
+   * configuration file found if not set.
+   */
+  @Parameter(alias = "deploy.configs", property = "app.deploy.configs")
+  private List<String> configs;
+
+  private Deployer.Factory deployerFactory = new Deployer.Factory();
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (skip) {
+      getLog().info("Skipping appengine:deployConfigs");
+      return;
+    }
+    deployerFactory.newDeployer(this).deployConfigs(configs);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
+import com.google.cloud.tools.maven.stage.FileManifest;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Hash of everything a deployment uploads and every option it is deployed with, recorded after a
+ * successful deployment so an identical deployment can be skipped.
+ */
+class DeployFingerprint {
+
+  private final Path file;
+
+  DeployFingerprint(Path file) {
+    this.file = file;
+  }
+
+  /** Computes the fingerprint of a deployment from the current content of its deployables. */
+  static String compute(DeployConfiguration config) throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (Path deployable : config.getDeployables()) {
+      hasher.putString(deployable.toAbsolutePath().toString(), StandardCharsets.UTF_8);
+      hasher.putByte((byte) 0);
+      if (Files.isDirectory(deployable)) {
+        hasher.putString(FileManifest.scan(deployable, null).contentHash(), StandardCharsets.UTF_8);
+      } else if (Files.exists(deployable)) {
+        hasher.putString(
+            MoreFiles.asByteSource(deployable).hash(Hashing.sha256()).toString(),
+            StandardCharsets.UTF_8);
+      }
+      hasher.putByte((byte) 0);
+    }
+    for (Object value :
+        new Object[] {
+          config.getBucket(),
+          config.getGcloudMode(),
+          config.getImageUrl(),
+          config.getProjectId(),
+          config.getPromote(),
+          config.getServer(),
+          config.getStopPreviousVersion(),
+          config.getVersion()
+        }) {
+      hasher.putString(String.valueOf(value), StandardCharsets.UTF_8).putByte((byte) 0);
+    }
+    return hasher.hash().toString();
+  }
+
+  /** Returns true if {@code fingerprint} is the one recorded for the last successful deployment. */
+  boolean matches(String fingerprint) throws IOException {
+    if (!Files.isRegularFile(file)) {
+      return false;
+    }
+    List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    return lines.size() == 1 && lines.get(0).equals(fingerprint);
+  }
+
+  /** Records {@code fingerprint} as the last successful deployment. */
+  void write(String fingerprint) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Files.write(file, (fingerprint + "\n").getBytes(StandardCharsets.UTF_8));
+  }
+}
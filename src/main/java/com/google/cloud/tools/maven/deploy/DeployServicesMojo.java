@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
+import com.google.cloud.tools.maven.deploy.ReactorDeployment.Service;
+import java.util.List;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Stage every service of a multi-module build, then deploy them concurrently to Google App Engine
+ * once the last module running this goal has been staged. Modules are staged in parallel when Maven
+ * runs with {@code -T}.
+ */
+@Mojo(name = "deployServices", defaultPhase = LifecyclePhase.DEPLOY, threadSafe = true)
+public class DeployServicesMojo extends AbstractDeployMojo {
+
+  /** Maximum number of services deployed at the same time. */
+  @Parameter(defaultValue = "4", alias = "deploy.threads", property = "app.deploy.threads")
+  private int threads;
+
+  /**
+   * Stop starting new deployments as soon as one service fails to deploy. If false, every service
+   * is deployed and all failures are reported at the end.
+   */
+  @Parameter(defaultValue = "true", alias = "deploy.failFast", property = "app.deploy.failFast")
+  private boolean failFast;
+
+  private Deployer.Factory deployerFactory = new Deployer.Factory();
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    Service service = null;
+    if (skip) {
+      getLog().info("Skipping appengine:deployServices");
+    } else {
+      Deployer deployer = deployerFactory.newDeployer(this);
+      DeployConfiguration config = deployer.prepareDeploy();
+      if (config != null) {
+        service = new Service(getMavenProject().getArtifactId(), deployer, config);
+      }
+    }
+
+    List<Service> services =
+        ReactorDeployment.forSession(getMavenSession()).addProject(getMavenProject(), service);
+    if (services == null) {
+      if (service != null) {
+        getLog()
+            .info(
+                "Deployment deferred until all reactor projects running "
+                    + ReactorDeployment.GOAL
+                    + " are staged.");
+      }
+      return;
+    }
+    ReactorDeployment.deployServices(services, threads, failFast, getLog());
+  }
+}
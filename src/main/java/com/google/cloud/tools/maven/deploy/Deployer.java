@@ -16,12 +16,14 @@
 
 package com.google.cloud.tools.maven.deploy;
 
+import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
 import com.google.cloud.tools.maven.deploy.AppDeployer.ConfigBuilder;
 import com.google.cloud.tools.maven.stage.AppEngineWebXmlStager;
 import com.google.cloud.tools.maven.stage.AppYamlStager;
 import com.google.cloud.tools.maven.stage.Stager;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import org.apache.maven.plugin.MojoExecutionException;
 
 public interface Deployer {
@@ -38,7 +40,7 @@ public interface Deployer {
       }
 
       ConfigProcessor configProcessor =
-          new ConfigProcessor(deployMojo.getAppEngineFactory().newConfigReader());
+          new ConfigProcessor(() -> deployMojo.getAppEngineFactory().newConfigReader());
       ConfigBuilder configBuilder = new ConfigBuilder(deployMojo, configProcessor);
 
       if (deployMojo.isAppEngineWebXmlBased()) {
@@ -67,10 +69,34 @@ public interface Deployer {
 
   void deploy() throws MojoExecutionException;
 
+  /**
+   * Stage the application and build the configuration {@link #deploy()} would use, without
+   * deploying.
+   *
+   * @return the deploy configuration, or null if there is nothing to deploy
+   */
+  DeployConfiguration prepareDeploy() throws MojoExecutionException;
+
+  /**
+   * Deploy a configuration built by {@link #prepareDeploy()}, honoring the skipping of unchanged
+   * deployments.
+   *
+   * @return true if it was deployed, false if it was skipped as unchanged
+   */
+  boolean deployPrepared(DeployConfiguration config) throws MojoExecutionException;
+
   void deployAll() throws MojoExecutionException;
 
   void deployCron() throws MojoExecutionException;
 
+  /**
+   * Deploy several configuration files with a single deployment.
+   *
+   * @param configTypes the configuration types to deploy (cron, dispatch, dos, index, queue), or
+   *     null or empty to deploy every configuration file found
+   */
+  void deployConfigs(List<String> configTypes) throws MojoExecutionException;
+
   void deployDispatch() throws MojoExecutionException;
 
   void deployDos() throws MojoExecutionException;
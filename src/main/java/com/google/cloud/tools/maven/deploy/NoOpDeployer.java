@@ -16,6 +16,8 @@
 
 package com.google.cloud.tools.maven.deploy;
 
+import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
+import java.util.List;
 import org.apache.maven.plugin.MojoExecutionException;
 
 /** No op deployer for non-war/jar modules. */
@@ -26,6 +28,16 @@ public class NoOpDeployer implements Deployer {
     // do nothing
   }
 
+  @Override
+  public DeployConfiguration prepareDeploy() throws MojoExecutionException {
+    return null;
+  }
+
+  @Override
+  public boolean deployPrepared(DeployConfiguration config) throws MojoExecutionException {
+    return false;
+  }
+
   @Override
   public void deployAll() throws MojoExecutionException {
     // do nothing
@@ -36,6 +48,11 @@ public class NoOpDeployer implements Deployer {
     // do nothing
   }
 
+  @Override
+  public void deployConfigs(List<String> configTypes) throws MojoExecutionException {
+    // do nothing
+  }
+
   @Override
   public void deployDispatch() throws MojoExecutionException {
     // do nothing
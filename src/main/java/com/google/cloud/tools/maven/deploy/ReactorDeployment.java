@@ -0,0 +1,265 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
+import com.google.cloud.tools.maven.cloudsdk.BuildSession;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Collects the services staged by each project of a reactor build that runs the deployServices
+ * goal, and deploys them together once the last of those projects has been staged. The build fails
+ * if it ends with services that were staged but never deployed.
+ */
+class ReactorDeployment {
+
+  static final String GOAL = "deployServices";
+
+  private static final Cache<Object, ReactorDeployment> reactorDeployments =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  private final Set<String> pendingProjects;
+  private final List<Service> services = new ArrayList<>();
+  private boolean deployed;
+
+  @VisibleForTesting
+  ReactorDeployment(Collection<MavenProject> projects) {
+    pendingProjects =
+        projects.stream().map(MavenProject::getId).collect(Collectors.toCollection(HashSet::new));
+  }
+
+  /** Returns the deployment shared by all projects of a build. */
+  static ReactorDeployment forSession(MavenSession session) {
+    return reactorDeployments
+        .asMap()
+        .computeIfAbsent(
+            BuildSession.key(session),
+            key -> {
+              ReactorDeployment deployment = new ReactorDeployment(getDeployingProjects(session));
+              BuildSession.onEnd(
+                  session,
+                  () -> {
+                    MavenExecutionResult result = session.getResult();
+                    MojoExecutionException failure = deployment.checkDeployed();
+                    if (failure != null && !result.hasExceptions()) {
+                      result.addException(failure);
+                    }
+                  });
+              return deployment;
+            });
+  }
+
+  /**
+   * Returns the projects of the build that run the deployServices goal: every project if it was
+   * requested on the command line, otherwise the projects that bind it in their build.
+   */
+  @VisibleForTesting
+  static List<MavenProject> getDeployingProjects(MavenSession session) {
+    return BuildSession.getProjectsRunning(session, GOAL);
+  }
+
+  /**
+   * Records that {@code project} has been staged.
+   *
+   * @param service the service staged by the project, or null if it has nothing to deploy
+   * @return every collected service if this was the last pending project, null otherwise
+   */
+  synchronized List<Service> addProject(MavenProject project, Service service) {
+    if (service != null) {
+      services.add(service);
+    }
+    pendingProjects.remove(project.getId());
+    if (deployed || !pendingProjects.isEmpty()) {
+      return null;
+    }
+    deployed = true;
+    return new ArrayList<>(services);
+  }
+
+  /** Returns a failure if services were staged but the build ended before deploying them. */
+  synchronized MojoExecutionException checkDeployed() {
+    if (deployed || services.isEmpty()) {
+      return null;
+    }
+    return new MojoExecutionException(
+        "Service(s) "
+            + services.stream().map(service -> service.name).collect(Collectors.joining(", "))
+            + " were staged but never deployed, because the build ended before project(s) "
+            + String.join(", ", new TreeSet<>(pendingProjects))
+            + " ran appengine:"
+            + GOAL);
+  }
+
+  /**
+   * Deploys services concurrently.
+   *
+   * @param threads maximum number of concurrent deployments
+   * @param failFast if true, no new deployment is started once one has failed
+   */
+  static void deployServices(List<Service> services, int threads, boolean failFast, Log log)
+      throws MojoExecutionException {
+    if (services.isEmpty()) {
+      log.info("No App Engine services to deploy.");
+      return;
+    }
+    int poolSize = Math.max(1, Math.min(threads, services.size()));
+    log.info(
+        "Deploying "
+            + services.size()
+            + " service(s) with up to "
+            + poolSize
+            + " concurrent deployment(s).");
+
+    long start = System.nanoTime();
+    AtomicBoolean cancelled = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+    List<Result> results = new ArrayList<>();
+    try {
+      List<Future<Result>> futures = new ArrayList<>();
+      for (Service service : services) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  Result result = service.deploy(cancelled, log);
+                  if (failFast && result.status == Status.FAILED) {
+                    cancelled.set(true);
+                  }
+                  return result;
+                }));
+      }
+      for (Future<Result> future : futures) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Interrupted while deploying services", ex);
+    } catch (ExecutionException ex) {
+      throw new MojoExecutionException("Failed to deploy", ex.getCause());
+    } finally {
+      executor.shutdown();
+    }
+    logSummary(results, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), log);
+
+    List<Result> failures =
+        results.stream()
+            .filter(result -> result.status == Status.FAILED)
+            .collect(Collectors.toList());
+    if (!failures.isEmpty()) {
+      throw new MojoExecutionException(
+          "Failed to deploy service(s): "
+              + failures.stream().map(result -> result.name).collect(Collectors.joining(", ")),
+          failures.get(0).failure);
+    }
+  }
+
+  private static void logSummary(List<Result> results, long totalMillis, Log log) {
+    int width = results.stream().mapToInt(result -> result.name.length()).max().orElse(0);
+    log.info("Deployment summary (" + formatMillis(totalMillis) + " total):");
+    for (Result result : results) {
+      String line =
+          String.format(
+              "  %-" + width + "s  %-8s  %s",
+              result.name,
+              result.status,
+              result.status == Status.SKIPPED ? "" : formatMillis(result.millis));
+      if (result.status == Status.FAILED) {
+        log.error(line);
+      } else {
+        log.info(line);
+      }
+    }
+  }
+
+  private static String formatMillis(long millis) {
+    return String.format("%.1fs", millis / 1000.0);
+  }
+
+  private enum Status {
+    DEPLOYED,
+    UNCHANGED,
+    FAILED,
+    SKIPPED
+  }
+
+  /** A staged service waiting to be deployed. */
+  static class Service {
+    private final String name;
+    private final Deployer deployer;
+    private final DeployConfiguration configuration;
+
+    Service(String name, Deployer deployer, DeployConfiguration configuration) {
+      this.name = name;
+      this.deployer = deployer;
+      this.configuration = configuration;
+    }
+
+    private Result deploy(AtomicBoolean cancelled, Log log) {
+      if (cancelled.get()) {
+        return new Result(name, Status.SKIPPED, 0, null);
+      }
+      log.info("Deploying service " + name);
+      long start = System.nanoTime();
+      try {
+        boolean changed = deployer.deployPrepared(configuration);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (!changed) {
+          return new Result(name, Status.UNCHANGED, millis, null);
+        }
+        log.info("Deployed service " + name + " in " + formatMillis(millis));
+        return new Result(name, Status.DEPLOYED, millis, null);
+      } catch (MojoExecutionException | RuntimeException ex) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.error("Failed to deploy service " + name + " after " + formatMillis(millis), ex);
+        return new Result(name, Status.FAILED, millis, ex);
+      }
+    }
+  }
+
+  private static class Result {
+    private final String name;
+    private final Status status;
+    private final long millis;
+    private final Exception failure;
+
+    Result(String name, Status status, long millis, Exception failure) {
+      this.name = name;
+      this.status = status;
+      this.millis = millis;
+      this.failure = failure;
+    }
+  }
+}
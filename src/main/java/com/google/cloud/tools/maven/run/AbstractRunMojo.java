@@ -16,8 +16,13 @@
 
 package com.google.cloud.tools.maven.run;
 
+import com.google.cloud.tools.appengine.AppEngineException;
+import com.google.cloud.tools.appengine.configuration.StopConfiguration;
+import com.google.cloud.tools.appengine.operations.DevServer;
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessOutputLineListener;
 import com.google.cloud.tools.maven.cloudsdk.CloudSdkMojo;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
@@ -25,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import org.apache.maven.model.Build;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 
 public abstract class AbstractRunMojo extends CloudSdkMojo {
@@ -74,6 +80,19 @@ public abstract class AbstractRunMojo extends CloudSdkMojo {
       property = "app.devserver.additionalArguments")
   private List<String> additionalArguments;
 
+  /**
+   * Start the server on a range of free ports instead of {@code port}, so parallel builds do not
+   * collide. The first port is published as the project property {@code
+   * app.devserver.allocatedPort} and recorded for the module's stop goal. (default: false)
+   */
+  @Parameter(
+      defaultValue = "false",
+      alias = "devserver.allocatePort",
+      property = "app.devserver.allocatePort")
+  private boolean allocatePort;
+
+  private Integer allocatedPort;
+
   /** The Google Cloud Platform project name to use for this invocation of the devserver. */
   @Parameter(alias = "devserver.projectId", property = "app.devserver.projectId")
   private String projectId;
@@ -96,7 +115,7 @@ public abstract class AbstractRunMojo extends CloudSdkMojo {
   }
 
   public Integer getPort() {
-    return port;
+    return allocatedPort != null ? allocatedPort : port;
   }
 
   public List<String> getJvmFlags() {
@@ -122,4 +141,57 @@ public abstract class AbstractRunMojo extends CloudSdkMojo {
   public String getProjectId() {
     return projectId;
   }
+
+  /** Allocates free ports for the services to run, if requested and not done yet. */
+  void allocatePortIfRequested() throws MojoExecutionException {
+    if (!allocatePort || allocatedPort != null) {
+      return;
+    }
+    int firstPort;
+    try {
+      firstPort = PortAllocator.allocate(getMavenSession(), getHost(), getServices().size());
+      PortAllocator.writePortFile(getMavenProject(), firstPort);
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Failed to allocate a port for the Dev App Server", ex);
+    }
+    allocatedPort = firstPort;
+    publishPort(firstPort);
+    getLog().info("Allocated port " + firstPort + " for the Dev App Server.");
+  }
+
+  /** Publishes the port of this module's Dev App Server for the rest of the build. */
+  void publishPort(int port) {
+    getMavenProject()
+        .getProperties()
+        .setProperty(PortAllocator.ALLOCATED_PORT_PROPERTY, Integer.toString(port));
+  }
+
+  /** Returns a listener for each line the Dev App Server outputs, or null if none is needed. */
+  ProcessOutputLineListener getDevServerOutputListener() {
+    return null;
+  }
+
+  /** Stops the Dev App Server running on the configured host and port, logging failures. */
+  void stopDevServer() {
+    try {
+      newStopAction().run();
+    } catch (RuntimeException ex) {
+      getLog().warn("Failed to stop the Dev App Server: " + ex.getMessage());
+    }
+  }
+
+  /**
+   * Returns an action stopping the Dev App Server running on the configured host and port, logging
+   * failures. The Cloud SDK is resolved now, so the action can also run from a shutdown hook.
+   */
+  Runnable newStopAction() {
+    DevServer devServer = getAppEngineFactory().devServerStop();
+    return () -> {
+      try {
+        devServer.stop(StopConfiguration.builder().host(getHost()).port(getPort()).build());
+      } catch (AppEngineException | RuntimeException ex) {
+        getLog().warn("Failed to stop the Dev App Server: " + ex.getMessage());
+      }
+    };
+  }
 }
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.run;
+
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessOutputLineListener;
+import com.google.cloud.tools.maven.cloudsdk.BuildSession;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Named Dev App Servers kept running across the modules of a build. The first module to start a
+ * pooled server launches it on a pool owned service directory, later modules swap their service
+ * into that directory and wait for the running server to reload it instead of starting a new JVM. A
+ * pooled server serves one module at a time: a module holds it from its start goal until its stop
+ * goal or the end of the module's build, and modules of a parallel build wait for it meanwhile. A
+ * pooled server is stopped once, by the stop goal of the last module using it, or when the build
+ * ends.
+ */
+class DevServerPool {
+
+  /** The goal starting pooled servers. */
+  static final String START_GOAL = "start";
+
+  /** How often a waiting module checks whether the module holding a server ended its build. */
+  private static final long HOLDER_CHECK_MILLIS = 1000;
+
+  /** Matches the line a Dev App Server logs when it reloads a changed service. */
+  private static final Pattern RELOAD_LINE = Pattern.compile("(?i)reloading the web ?app");
+
+  private static final Cache<Object, DevServerPool> sessionPools =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  private final Path poolDirectory;
+  private final Map<String, Runnable> runningServers = new HashMap<>();
+  private final Map<String, Integer> ports = new HashMap<>();
+  private final Set<String> startingServers = new HashSet<>();
+  private final Map<String, Set<String>> members = new HashMap<>();
+  private final Map<String, MavenProject> holders = new HashMap<>();
+  private final Map<String, Integer> reloads = new HashMap<>();
+
+  @VisibleForTesting
+  DevServerPool(Path poolDirectory) {
+    this.poolDirectory = poolDirectory;
+  }
+
+  /** Returns the pool shared by all modules of a build, whose servers stop when it ends. */
+  static DevServerPool forSession(MavenSession session) {
+    return sessionPools
+        .asMap()
+        .computeIfAbsent(
+            BuildSession.key(session),
+            key -> {
+              DevServerPool pool = new DevServerPool(getPoolDirectory(session));
+              BuildSession.onEnd(session, pool::stopAll);
+              return pool;
+            });
+  }
+
+  private static Path getPoolDirectory(MavenSession session) {
+    MavenProject topLevelProject = session.getTopLevelProject();
+    if (topLevelProject != null
+        && topLevelProject.getBuild() != null
+        && topLevelProject.getBuild().getDirectory() != null) {
+      return Paths.get(topLevelProject.getBuild().getDirectory(), "appengine-pool");
+    }
+    String executionRoot = session.getExecutionRootDirectory();
+    return Paths.get(executionRoot == null ? "." : executionRoot, "target", "appengine-pool");
+  }
+
+  /** Returns the service directory served by the pooled server {@code name}. */
+  Path getServiceDirectory(String name) {
+    return poolDirectory.resolve(name);
+  }
+
+  synchronized boolean isRunning(String name) {
+    return runningServers.containsKey(name);
+  }
+
+  /**
+   * Makes {@code project} the holder of the pooled server {@code name}, waiting while another
+   * module is starting it or holds it, and decides whether the caller starts it. The project holds
+   * the server until it {@link #leave}s or {@link #release}s it, or its build ends. A caller that
+   * gets true must call {@link #started} or {@link #startFailed}.
+   *
+   * @return true if the server is not running and the caller must start it
+   */
+  synchronized boolean claimStart(String name, MavenSession session, MavenProject project)
+      throws InterruptedException {
+    while (startingServers.contains(name) || isHeldByOther(name, session, project)) {
+      wait(HOLDER_CHECK_MILLIS);
+    }
+    holders.put(name, project);
+    if (runningServers.containsKey(name)) {
+      return false;
+    }
+    startingServers.add(name);
+    return true;
+  }
+
+  /**
+   * Returns true if a module other than {@code project} holds the pooled server {@code name}. A
+   * module whose build ended, for example because it failed before its stop goal, no longer holds
+   * it.
+   */
+  private boolean isHeldByOther(String name, MavenSession session, MavenProject project) {
+    MavenProject holder = holders.get(name);
+    if (holder == null || holder == project) {
+      return false;
+    }
+    MavenExecutionResult result = session.getResult();
+    if (result != null && result.getBuildSummary(holder) != null) {
+      holders.remove(name);
+      members.getOrDefault(name, Collections.emptySet()).remove(holder.getId());
+      return false;
+    }
+    return true;
+  }
+
+  /** Releases the claim to start the pooled server {@code name} after failing to start it. */
+  synchronized void startFailed(String name) {
+    startingServers.remove(name);
+    notifyAll();
+  }
+
+  /** Releases the hold of {@code project} on the pooled server {@code name}, if it holds it. */
+  synchronized void release(String name, MavenProject project) {
+    if (holders.get(name) == project) {
+      holders.remove(name);
+      notifyAll();
+    }
+  }
+
+  /** Returns the port the pooled server {@code name} was started on, or null if unknown. */
+  synchronized Integer getPort(String name) {
+    return ports.get(name);
+  }
+
+  /**
+   * Records that the pooled server {@code name} was started.
+   *
+   * @param port the port it was started on, or null if unknown
+   * @param stopAction stops the server, run at most once
+   */
+  synchronized void started(String name, Integer port, Runnable stopAction) {
+    runningServers.put(name, stopAction);
+    if (port != null) {
+      ports.put(name, port);
+    }
+    startingServers.remove(name);
+    notifyAll();
+  }
+
+  /** Returns a listener counting the reloads logged by the pooled server {@code name}. */
+  ProcessOutputLineListener newReloadListener(String name) {
+    return line -> {
+      if (RELOAD_LINE.matcher(line).find()) {
+        synchronized (this) {
+          reloads.merge(name, 1, Integer::sum);
+          notifyAll();
+        }
+      }
+    };
+  }
+
+  /** Returns the number of reloads the pooled server {@code name} logged. */
+  synchronized int getReloadCount(String name) {
+    return reloads.getOrDefault(name, 0);
+  }
+
+  /**
+   * Blocks until the pooled server {@code name} logged more than {@code count} reloads or the
+   * timeout elapses.
+   *
+   * @return true if it reloaded in time
+   */
+  synchronized boolean awaitReload(String name, int count, long timeoutMillis)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while (getReloadCount(name) <= count) {
+      long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      if (remaining <= 0) {
+        return false;
+      }
+      wait(remaining);
+    }
+    return true;
+  }
+
+  /** Records that {@code project} started or swapped its service into the pooled server. */
+  synchronized void join(String name, MavenProject project) {
+    members.computeIfAbsent(name, key -> new HashSet<>()).add(project.getId());
+  }
+
+  /**
+   * Records that {@code project} is done with the pooled server {@code name}, releasing its hold,
+   * and stops it if no other module uses it or may still start using it.
+   *
+   * @return true if the server was stopped
+   */
+  boolean leave(String name, MavenSession session, MavenProject project) {
+    Runnable stopAction;
+    synchronized (this) {
+      release(name, project);
+      Set<String> users = members.getOrDefault(name, Collections.emptySet());
+      users.remove(project.getId());
+      if (!users.isEmpty() || hasPendingProjects(session, project)) {
+        return false;
+      }
+      stopAction = remove(name);
+    }
+    return run(stopAction);
+  }
+
+  /** Returns true if a project other than {@code project} may still start a pooled server. */
+  private static boolean hasPendingProjects(MavenSession session, MavenProject project) {
+    MavenExecutionResult result = session.getResult();
+    return BuildSession.getProjectsRunning(session, START_GOAL).stream()
+        .anyMatch(other -> other != project && result.getBuildSummary(other) == null);
+  }
+
+  /** Stops the pooled server {@code name}, returning false if it was not running. */
+  boolean stop(String name) {
+    Runnable stopAction;
+    synchronized (this) {
+      stopAction = remove(name);
+    }
+    return run(stopAction);
+  }
+
+  /** Stops every pooled server still running. */
+  void stopAll() {
+    List<Runnable> stopActions;
+    synchronized (this) {
+      stopActions = new ArrayList<>(runningServers.values());
+      runningServers.clear();
+      ports.clear();
+      members.clear();
+      holders.clear();
+      reloads.clear();
+      notifyAll();
+    }
+    stopActions.forEach(Runnable::run);
+  }
+
+  private Runnable remove(String name) {
+    ports.remove(name);
+    members.remove(name);
+    holders.remove(name);
+    reloads.remove(name);
+    notifyAll();
+    return runningServers.remove(name);
+  }
+
+  private static boolean run(Runnable stopAction) {
+    if (stopAction == null) {
+      return false;
+    }
+    stopAction.run();
+    return true;
+  }
+}
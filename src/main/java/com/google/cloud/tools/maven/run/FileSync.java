@@ -0,0 +1,269 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.run;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Watches source directories and mirrors changes into target directories of a running dev
+ * appserver. Bursts of changes, like a recompilation, are collected until the file system has been
+ * quiet for a while and then synced together.
+ */
+class FileSync implements Closeable {
+
+  private final Map<Path, Path> directories = new LinkedHashMap<>();
+  private final long quietPeriodMillis;
+  private final Log log;
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+  /**
+   * Creates a sync and starts watching.
+   *
+   * @param directories source directories mapped to the directories they are mirrored into
+   * @param quietPeriodMillis how long no change must happen before a burst of changes is synced
+   */
+  FileSync(Map<Path, Path> directories, long quietPeriodMillis, Log log) throws IOException {
+    for (Map.Entry<Path, Path> directory : directories.entrySet()) {
+      this.directories.put(directory.getKey().toAbsolutePath().normalize(), directory.getValue());
+    }
+    this.quietPeriodMillis = quietPeriodMillis;
+    this.log = log;
+    this.watchService = FileSystems.getDefault().newWatchService();
+    for (Path source : this.directories.keySet()) {
+      if (Files.isDirectory(source)) {
+        registerAll(source);
+      } else {
+        log.warn("Not watching " + source + ", the directory does not exist.");
+      }
+    }
+  }
+
+  /** Syncs changes until the thread is interrupted. */
+  void watch() throws IOException, InterruptedException {
+    while (true) {
+      Set<Path> changes = awaitChanges();
+      long start = System.nanoTime();
+      int synced = sync(changes);
+      if (synced > 0) {
+        log.info(
+            "Synced "
+                + synced
+                + " changed file(s) to the Dev App Server in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                + "ms");
+      }
+    }
+  }
+
+  /**
+   * Blocks until files change, then collects further changes until none happened for the quiet
+   * period.
+   *
+   * @return the changed files and directories; a watched source directory if events were lost
+   */
+  Set<Path> awaitChanges() throws InterruptedException {
+    Set<Path> changes = new LinkedHashSet<>();
+    WatchKey key = watchService.take();
+    while (key != null) {
+      collectChanges(key, changes);
+      key = watchService.poll(quietPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+    return changes;
+  }
+
+  private void collectChanges(WatchKey key, Set<Path> changes) {
+    Path directory = watchedDirectories.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        // events were lost, sync the whole source directory
+        changes.add(getSourceRoot(directory));
+      } else if (directory != null) {
+        changes.add(directory.resolve((Path) event.context()));
+      }
+    }
+    if (!key.reset()) {
+      watchedDirectories.remove(key);
+    }
+  }
+
+  /**
+   * Mirrors changed source files and directories into the target directories.
+   *
+   * @return the number of files copied or deleted
+   */
+  int sync(Set<Path> changes) throws IOException {
+    int synced = 0;
+    for (Path change : changes) {
+      Path sourceRoot = getSourceRoot(change);
+      if (sourceRoot == null) {
+        continue;
+      }
+      Path target = directories.get(sourceRoot).resolve(sourceRoot.relativize(change).toString());
+      if (Files.isDirectory(change, LinkOption.NOFOLLOW_LINKS)) {
+        registerAll(change);
+        synced += copyTree(change, target);
+      } else if (Files.isRegularFile(change)) {
+        synced += copyIfChanged(change, target) ? 1 : 0;
+      } else if (Files.exists(target)) {
+        FileUtils.forceDelete(target.toFile());
+        synced++;
+      }
+    }
+    return synced;
+  }
+
+  private Path getSourceRoot(Path path) {
+    if (path == null) {
+      return null;
+    }
+    Path sourceRoot = null;
+    for (Path source : directories.keySet()) {
+      if (path.startsWith(source)
+          && (sourceRoot == null || source.getNameCount() > sourceRoot.getNameCount())) {
+        sourceRoot = source;
+      }
+    }
+    return sourceRoot;
+  }
+
+  private void registerAll(Path root) throws IOException {
+    Files.walkFileTree(
+        root,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+              throws IOException {
+            WatchKey key =
+                dir.register(
+                    watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            watchedDirectories.put(key, dir);
+            return FileVisitResult.CONTINUE;
+          }
+        });
+  }
+
+  private int copyTree(Path source, Path target) throws IOException {
+    int[] copied = {0};
+    Files.walkFileTree(
+        source,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            if (copyIfChanged(file, target.resolve(source.relativize(file).toString()))) {
+              copied[0]++;
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    return copied[0];
+  }
+
+  /**
+   * Makes {@code target} an exact copy of {@code source}, copying only changed files and deleting
+   * files that no longer exist in {@code source}.
+   *
+   * @return the number of files copied or deleted
+   */
+  static int mirror(Path source, Path target) throws IOException {
+    int[] synced = {0};
+    Files.walkFileTree(
+        source,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            if (copyIfChanged(file, target.resolve(source.relativize(file).toString()))) {
+              synced[0]++;
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    if (!Files.isDirectory(target)) {
+      return synced[0];
+    }
+    Files.walkFileTree(
+        target,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            if (!Files.exists(source.resolve(target.relativize(file).toString()))) {
+              Files.delete(file);
+              synced[0]++;
+            }
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+            if (!dir.equals(target)
+                && !Files.exists(source.resolve(target.relativize(dir).toString()))) {
+              Files.delete(dir);
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    return synced[0];
+  }
+
+  private static boolean copyIfChanged(Path source, Path target) throws IOException {
+    if (Files.isRegularFile(target)
+        && Files.size(source) == Files.size(target)
+        && Files.getLastModifiedTime(source).toMillis()
+            == Files.getLastModifiedTime(target).toMillis()) {
+      return false;
+    }
+    Path parent = target.getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Files.copy(
+        source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.run;
+
+import com.google.cloud.tools.maven.cloudsdk.BuildSession;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Finds ranges of free ports for Dev App Servers, so the modules of a parallel build do not
+ * collide, and records the port of each module's server for its stop goal.
+ */
+class PortAllocator {
+
+  /** Project property holding the first port allocated for a module's Dev App Server. */
+  static final String ALLOCATED_PORT_PROPERTY = "app.devserver.allocatedPort";
+
+  private static final int ATTEMPTS = 20;
+
+  /** Ports handed out during each build, never handed out again in the same build. */
+  private static final Cache<Object, Set<Integer>> sessionPorts =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  private PortAllocator() {}
+
+  /**
+   * Returns the first of {@code count} consecutive ports that are free on {@code host} and were not
+   * handed out before in the build of {@code session}.
+   *
+   * @param host the host the server binds to, the loopback address if null
+   */
+  static synchronized int allocate(MavenSession session, String host, int count)
+      throws IOException {
+    Set<Integer> allocatedPorts =
+        sessionPorts.asMap().computeIfAbsent(BuildSession.key(session), key -> new HashSet<>());
+    InetAddress address =
+        host == null || host.isEmpty()
+            ? InetAddress.getLoopbackAddress()
+            : InetAddress.getByName(host);
+    for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+      int firstPort;
+      try (ServerSocket socket = new ServerSocket(0, 1, address)) {
+        firstPort = socket.getLocalPort();
+      }
+      if (isFree(allocatedPorts, address, firstPort, count)) {
+        for (int port = firstPort; port < firstPort + count; port++) {
+          allocatedPorts.add(port);
+        }
+        return firstPort;
+      }
+    }
+    throw new IOException("Unable to find " + count + " consecutive free port(s) on " + address);
+  }
+
+  /** Returns true if {@code port} was handed out in the build of {@code session}. */
+  @VisibleForTesting
+  static synchronized boolean isAllocated(MavenSession session, int port) {
+    Set<Integer> allocatedPorts = sessionPorts.getIfPresent(BuildSession.key(session));
+    return allocatedPorts != null && allocatedPorts.contains(port);
+  }
+
+  private static boolean isFree(
+      Set<Integer> allocatedPorts, InetAddress address, int firstPort, int count) {
+    if (firstPort + count - 1 > 65535) {
+      return false;
+    }
+    for (int port = firstPort; port < firstPort + count; port++) {
+      if (allocatedPorts.contains(port)) {
+        return false;
+      }
+      try (ServerSocket socket = new ServerSocket(port, 1, address)) {
+        // free
+      } catch (IOException ex) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Location of the file recording the port of a module's Dev App Server. */
+  static Path getPortFile(MavenProject project) {
+    return Paths.get(project.getBuild().getDirectory(), "appengine-devserver.port");
+  }
+
+  static void writePortFile(MavenProject project, int port) throws IOException {
+    Path portFile = getPortFile(project);
+    Path parent = portFile.getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Files.write(portFile, Integer.toString(port).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Returns the port recorded for a module's Dev App Server, or null if there is none. */
+  static Integer readPortFile(MavenProject project) throws IOException {
+    Path portFile = getPortFile(project);
+    if (!Files.isRegularFile(portFile)) {
+      return null;
+    }
+    try {
+      return Integer.valueOf(
+          new String(Files.readAllBytes(portFile), StandardCharsets.UTF_8).trim());
+    } catch (NumberFormatException ex) {
+      throw new IOException("Invalid Dev App Server port file " + portFile, ex);
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.run;
+
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessExitListener;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls a dev appserver over HTTP with exponential backoff until it answers. Any response below 500
+ * counts as ready, server errors are retried because the application may still be initializing.
+ * Polling stops early once the probe is notified that the dev appserver process exited.
+ */
+class ReadinessProbe implements ProcessExitListener {
+
+  static final long INITIAL_BACKOFF_MILLIS = 50;
+  static final long MAX_BACKOFF_MILLIS = 1000;
+
+  private final URL url;
+
+  // guarded by this
+  private Integer exitCode;
+
+  ReadinessProbe(URL url) {
+    this.url = url;
+  }
+
+  /**
+   * Builds the URL probed for a dev appserver.
+   *
+   * @param host the configured host, localhost if null or a wildcard address
+   * @param port the configured port, 8080 if null
+   * @param path the path to request, the root if null
+   */
+  static URL buildUrl(String host, Integer port, String path) throws MalformedURLException {
+    String probeHost = host == null || host.isEmpty() || isWildcard(host) ? "localhost" : host;
+    if (probeHost.contains(":") && !probeHost.startsWith("[")) {
+      probeHost = "[" + probeHost + "]";
+    }
+    String probePath = path == null || path.isEmpty() ? "/" : path;
+    if (!probePath.startsWith("/")) {
+      probePath = "/" + probePath;
+    }
+    return new URL("http", probeHost, port == null ? 8080 : port, probePath);
+  }
+
+  private static boolean isWildcard(String host) {
+    try {
+      return InetAddress.getByName(host).isAnyLocalAddress();
+    } catch (UnknownHostException ex) {
+      return false;
+    }
+  }
+
+  URL getUrl() {
+    return url;
+  }
+
+  /** Records that the dev appserver process exited, ending a pending {@link #await}. */
+  @Override
+  public synchronized void onExit(int exitCode) {
+    this.exitCode = exitCode;
+    notifyAll();
+  }
+
+  /** Returns the exit code of the dev appserver process, or null if it did not exit. */
+  synchronized Integer getExitCode() {
+    return exitCode;
+  }
+
+  /**
+   * Blocks until the server answers, the dev appserver process exits or the timeout elapses.
+   *
+   * @return true if the server answered in time, false if it exited or timed out
+   */
+  boolean await(long timeoutMillis) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    long backoff = INITIAL_BACKOFF_MILLIS;
+    while (true) {
+      if (getExitCode() != null) {
+        return false;
+      }
+      if (isReady()) {
+        return true;
+      }
+      long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      if (remaining <= 0) {
+        return false;
+      }
+      synchronized (this) {
+        if (exitCode == null) {
+          wait(Math.min(backoff, remaining));
+        }
+      }
+      backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+    }
+  }
+
+  /** Returns true if any process accepts connections on the probed host and port. */
+  boolean isListening() {
+    try (Socket socket = new Socket()) {
+      socket.connect(
+          new InetSocketAddress(url.getHost().replaceAll("^\\[|\\]$", ""), url.getPort()),
+          (int) MAX_BACKOFF_MILLIS);
+      return true;
+    } catch (IOException ex) {
+      return false;
+    }
+  }
+
+  /** Returns true if a single request was answered without a server error. */
+  boolean isReady() {
+    HttpURLConnection connection = null;
+    try {
+      connection = (HttpURLConnection) url.openConnection();
+      connection.setConnectTimeout((int) MAX_BACKOFF_MILLIS);
+      connection.setReadTimeout((int) MAX_BACKOFF_MILLIS);
+      connection.setInstanceFollowRedirects(false);
+      return connection.getResponseCode() < 500;
+    } catch (IOException ex) {
+      // not listening yet
+      return false;
+    } finally {
+      if (connection != null) {
+        connection.disconnect();
+      }
+    }
+  }
+}
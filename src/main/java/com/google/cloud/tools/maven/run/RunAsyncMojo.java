@@ -16,14 +16,21 @@
 
 package com.google.cloud.tools.maven.run;
 
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessOutputLineListener;
 import com.google.cloud.tools.maven.run.Runner.Factory;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
 /** Starts running App Engine Development App Server asynchronously. */
-@Mojo(name = "start", defaultPhase = LifecyclePhase.DEPLOY)
+@Mojo(name = "start", defaultPhase = LifecyclePhase.DEPLOY, threadSafe = true)
 public class RunAsyncMojo extends AbstractRunMojo {
 
   /** Number of seconds to wait for the server to start. Set to 0 to not wait. */
@@ -33,14 +40,182 @@ public class RunAsyncMojo extends AbstractRunMojo {
       property = "app.devserver.startSuccessTimeout")
   protected int startSuccessTimeout;
 
+  /**
+   * Decide that the server has started when it answers HTTP requests on the configured host and
+   * port, instead of waiting for its start up log message.
+   */
+  @Parameter(
+      defaultValue = "false",
+      alias = "devserver.readinessProbe",
+      property = "app.devserver.readinessProbe")
+  protected boolean readinessProbe;
+
+  /** Path requested by the readiness probe, for example a health check handler. */
+  @Parameter(
+      defaultValue = "/",
+      alias = "devserver.readinessPath",
+      property = "app.devserver.readinessPath")
+  protected String readinessPath;
+
+  /**
+   * Name of a Dev App Server kept running across the modules of the build. The first module starts
+   * it, later modules swap their service into it, and it is stopped by the stop goal of the last
+   * module using it or when the build ends. A module holds the server until its stop goal, so in
+   * parallel builds the modules use it one after the other.
+   */
+  @Parameter(alias = "devserver.pool", property = "app.devserver.pool")
+  protected String pool;
+
   private Runner.Factory factory = new Factory();
 
+  private Path pooledServiceDirectory;
+
   @Override
   public void execute() throws MojoExecutionException {
     if (skip) {
       getLog().info("Skipping appengine:start");
       return;
     }
-    factory.newRunner(this).runAsync(startSuccessTimeout);
+    if (pool != null && !pool.isEmpty()) {
+      startPooled();
+    } else {
+      start(factory.newRunner(this));
+    }
+  }
+
+  private void start(Runner runner) throws MojoExecutionException {
+    if (readinessProbe) {
+      runner.runAsyncUntilReady(startSuccessTimeout, readinessPath);
+    } else {
+      runner.runAsync(startSuccessTimeout);
+    }
+  }
+
+  private void startPooled() throws MojoExecutionException {
+    List<Path> services = super.getServices();
+    if (services.size() != 1) {
+      throw new MojoExecutionException(
+          "A pooled Dev App Server runs a single service per module, found: " + services);
+    }
+    final Runner runner = factory.newRunner(this);
+    DevServerPool serverPool = DevServerPool.forSession(getMavenSession());
+    Path serviceDirectory = serverPool.getServiceDirectory(pool);
+    boolean starting;
+    try {
+      starting = serverPool.claimStart(pool, getMavenSession(), getMavenProject());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException(
+          "Interrupted while waiting for the pooled Dev App Server", ex);
+    }
+    boolean joined = false;
+    try {
+      // this module holds the pool, so no other module swaps its service in until it stops
+      int reloads = serverPool.getReloadCount(pool);
+      int synced = FileSync.mirror(services.get(0), serviceDirectory);
+      if (starting) {
+        pooledServiceDirectory = serviceDirectory;
+        start(runner);
+        serverPool.started(pool, getPort(), runner::stop);
+        starting = false;
+      } else {
+        getLog()
+            .info(
+                "Swapped "
+                    + services.get(0)
+                    + " into the running pooled Dev App Server '"
+                    + pool
+                    + "' ("
+                    + synced
+                    + " file(s) changed).");
+        Integer pooledPort = serverPool.getPort(pool);
+        if (pooledPort != null) {
+          publishPort(pooledPort);
+        }
+        if (synced > 0) {
+          awaitReload(serverPool, reloads, pooledPort != null ? pooledPort : getPort());
+        }
+      }
+      serverPool.join(pool, getMavenProject());
+      joined = true;
+    } catch (IOException ex) {
+      throw new MojoExecutionException(
+          "Failed to swap " + services.get(0) + " into the pooled Dev App Server " + pool, ex);
+    } finally {
+      if (starting) {
+        serverPool.startFailed(pool);
+      }
+      if (!joined) {
+        serverPool.release(pool, getMavenProject());
+      }
+    }
+  }
+
+  /**
+   * Waits, up to {@code startSuccessTimeout} seconds, until the pooled server logged a reload after
+   * {@code reloads} and then answers at {@code readinessPath}, so this module's tests do not reach
+   * the service swapped out.
+   */
+  private void awaitReload(DevServerPool serverPool, int reloads, Integer port)
+      throws MojoExecutionException {
+    if (startSuccessTimeout <= 0) {
+      return;
+    }
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(startSuccessTimeout);
+    try {
+      if (!serverPool.awaitReload(pool, reloads, TimeUnit.SECONDS.toMillis(startSuccessTimeout))) {
+        getLog()
+            .warn(
+                "The pooled Dev App Server '"
+                    + pool
+                    + "' did not reload within "
+                    + startSuccessTimeout
+                    + " seconds, it may still serve the previous service.");
+        return;
+      }
+      ReadinessProbe probe =
+          new ReadinessProbe(ReadinessProbe.buildUrl(getHost(), port, readinessPath));
+      long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      if (!probe.await(Math.max(remaining, 0))) {
+        throw new MojoExecutionException(
+            "The pooled Dev App Server '"
+                + pool
+                + "' did not answer at "
+                + probe.getUrl()
+                + " within "
+                + startSuccessTimeout
+                + " seconds after reloading");
+      }
+    } catch (MalformedURLException ex) {
+      throw new MojoExecutionException("Invalid Dev App Server readiness URL", ex);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException(
+          "Interrupted while waiting for the pooled Dev App Server to reload", ex);
+    }
+  }
+
+  /** Records the reloads of a pooled server being started, awaited by later modules. */
+  @Override
+  ProcessOutputLineListener getDevServerOutputListener() {
+    if (pooledServiceDirectory != null) {
+      return DevServerPool.forSession(getMavenSession()).newReloadListener(pool);
+    }
+    return super.getDevServerOutputListener();
+  }
+
+  /** Returns the pool's service directory once a pooled server is being started. */
+  @Override
+  public List<Path> getServices() {
+    if (pooledServiceDirectory != null) {
+      return Collections.singletonList(pooledServiceDirectory);
+    }
+    return super.getServices();
+  }
+
+  /** Pooled servers must reload the services swapped into them. */
+  @Override
+  public Boolean getAutomaticRestart() {
+    return pooledServiceDirectory != null ? Boolean.TRUE : super.getAutomaticRestart();
   }
 }
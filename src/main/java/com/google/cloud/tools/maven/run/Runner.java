@@ -18,12 +18,16 @@ package com.google.cloud.tools.maven.run;
 
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.configuration.RunConfiguration;
+import com.google.cloud.tools.maven.cloudsdk.BuildTimer;
 import com.google.cloud.tools.maven.cloudsdk.ConfigReader;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 import org.apache.maven.plugin.MojoExecutionException;
 
 public class Runner {
@@ -53,7 +57,8 @@ public class Runner {
 
   /** Run the dev appserver. */
   public void run() throws MojoExecutionException {
-    try {
+    runMojo.allocatePortIfRequested();
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(runMojo).start("devserver.run")) {
       runMojo
           .getAppEngineFactory()
           .devServerRunSync()
@@ -65,21 +70,106 @@ public class Runner {
 
   /** Run the dev appserver in async mode. */
   public void runAsync(int startSuccessTimeout) throws MojoExecutionException {
+    runMojo.allocatePortIfRequested();
     runMojo
         .getLog()
         .info("Waiting " + startSuccessTimeout + " seconds for the Dev App Server to start.");
+    long start = System.nanoTime();
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(runMojo).start("devserver.start")) {
+      runMojo
+          .getAppEngineFactory()
+          .devServerRunAsync(startSuccessTimeout, runMojo.getDevServerOutputListener(), null)
+          .run(configBuilder.buildRunConfiguration(processServices(), processProjectId()));
+    } catch (AppEngineException ex) {
+      throw new RuntimeException(ex);
+    }
+    runMojo.getLog().info("Dev App Server started in " + formatSince(start) + ".");
+    runMojo.getLog().info("Use the 'mvn appengine:stop' command to stop the server.");
+  }
+
+  /**
+   * Run the dev appserver in async mode, and wait until it answers HTTP requests instead of waiting
+   * for its start up log message.
+   *
+   * @param startSuccessTimeout seconds to wait for the server to answer, 0 to not wait
+   * @param readinessPath the path requested, the root if null
+   */
+  public void runAsyncUntilReady(int startSuccessTimeout, String readinessPath)
+      throws MojoExecutionException {
+    if (startSuccessTimeout <= 0) {
+      runAsync(0);
+      return;
+    }
+    runMojo.allocatePortIfRequested();
+    ReadinessProbe probe;
     try {
+      probe =
+          new ReadinessProbe(
+              ReadinessProbe.buildUrl(runMojo.getHost(), runMojo.getPort(), readinessPath));
+    } catch (MalformedURLException ex) {
+      throw new MojoExecutionException("Invalid Dev App Server readiness URL", ex);
+    }
+    if (probe.isListening()) {
+      // its answers would be taken for the Dev App Server's
+      throw new MojoExecutionException(
+          "Another process already listens at "
+              + probe.getUrl()
+              + ", not starting the Dev App Server");
+    }
+    runMojo
+        .getLog()
+        .info(
+            "Waiting up to "
+                + startSuccessTimeout
+                + " seconds for the Dev App Server to answer at "
+                + probe.getUrl());
+    long start = System.nanoTime();
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(runMojo).start("devserver.start")) {
       runMojo
           .getAppEngineFactory()
-          .devServerRunAsync(startSuccessTimeout)
+          .devServerRunAsync(0, runMojo.getDevServerOutputListener(), probe)
           .run(configBuilder.buildRunConfiguration(processServices(), processProjectId()));
+      boolean ready = probe.await(TimeUnit.SECONDS.toMillis(startSuccessTimeout));
+      if (!ready && probe.getExitCode() != null) {
+        throw new MojoExecutionException(
+            "Dev App Server exited with code "
+                + probe.getExitCode()
+                + " before answering at "
+                + probe.getUrl());
+      }
+      if (!ready) {
+        // do not leave a server that never answered running on the port after the build fails
+        runMojo.stopDevServer();
+        throw new MojoExecutionException(
+            "Dev App Server did not answer at "
+                + probe.getUrl()
+                + " within "
+                + startSuccessTimeout
+                + " seconds");
+      }
     } catch (AppEngineException ex) {
       throw new RuntimeException(ex);
+    } catch (InterruptedException ex) {
+      runMojo.stopDevServer();
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Interrupted while waiting for the Dev App Server", ex);
     }
-    runMojo.getLog().info("Dev App Server started.");
+    runMojo.getLog().info("Dev App Server started in " + formatSince(start) + ".");
     runMojo.getLog().info("Use the 'mvn appengine:stop' command to stop the server.");
   }
 
+  /** Stop the dev appserver started by this runner, logging a warning on failure. */
+  public void stop() {
+    runMojo.stopDevServer();
+  }
+
+  private static String formatSince(long startNanos) {
+    return String.format(
+        Locale.ROOT,
+        "%.1fs",
+        (System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1));
+  }
+
   static final String NON_STANDARD_APPLICATION_ERROR =
       "\nCould not find appengine-web.xml all services, perhaps you need to run "
           + "'mvn package appengine:run/start'."
@@ -20,12 +20,14 @@ import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.configuration.StopConfiguration;
 import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkNotFoundException;
 import com.google.cloud.tools.maven.cloudsdk.CloudSdkMojo;
+import java.io.IOException;
+import java.nio.file.Files;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
 /** Stops a running App Engine Development App Server. */
-@Mojo(name = "stop")
+@Mojo(name = "stop", threadSafe = true)
 public class StopMojo extends CloudSdkMojo {
 
   /** Host name to which application modules should bind. (default: localhost) */
@@ -36,22 +38,67 @@ public class StopMojo extends CloudSdkMojo {
   @Parameter(alias = "devserver.port", property = "app.devserver.port")
   protected Integer port;
 
+  /**
+   * Name of the pooled Dev App Server started by the start goal. A pooled server started in this
+   * build is only stopped once no other module uses it or may still start using it.
+   */
+  @Parameter(alias = "devserver.pool", property = "app.devserver.pool")
+  protected String pool;
+
+  /**
+   * Stop the server on the port allocated by this module's start goal when no {@code port} is
+   * configured, mirroring the start goal's parameter. (default: false)
+   */
+  @Parameter(
+      defaultValue = "false",
+      alias = "devserver.allocatePort",
+      property = "app.devserver.allocatePort")
+  protected boolean allocatePort;
+
   @Override
   public void execute() throws MojoExecutionException {
     if (skip) {
       getLog().info("Skipping appengine:stop");
       return;
     }
+    if (pool != null && !pool.isEmpty() && getMavenSession() != null) {
+      DevServerPool serverPool = DevServerPool.forSession(getMavenSession());
+      if (serverPool.isRunning(pool)) {
+        if (serverPool.leave(pool, getMavenSession(), getMavenProject())) {
+          getLog().info("Stopped pooled Dev App Server '" + pool + "'.");
+        } else {
+          getLog().info("Leaving pooled Dev App Server '" + pool + "' running for other modules.");
+        }
+        return;
+      }
+    }
+    Integer allocatedPort = null;
+    if (allocatePort && port == null && getMavenProject() != null) {
+      try {
+        allocatedPort = PortAllocator.readPortFile(getMavenProject());
+      } catch (IOException ex) {
+        throw new MojoExecutionException("Stop failed", ex);
+      }
+    }
     try {
-      getAppEngineFactory().devServerStop().stop(buildStopConfiguration());
+      getAppEngineFactory().devServerStop().stop(buildStopConfiguration(allocatedPort));
+      if (allocatedPort != null) {
+        Files.deleteIfExists(PortAllocator.getPortFile(getMavenProject()));
+      }
     } catch (CloudSdkNotFoundException ex) {
       throw new MojoExecutionException("Stop failed", ex);
     } catch (AppEngineException ex) {
       getLog().error("Failed to stop server: " + ex.getMessage());
+    } catch (IOException ex) {
+      getLog().warn("Failed to delete the Dev App Server port file: " + ex.getMessage());
     }
   }
 
-  private StopConfiguration buildStopConfiguration() {
-    return StopConfiguration.builder().host(host).port(port).build();
+  /**
+   * Builds the stop configuration, using the port allocated by this module's start goal if no port
+   * is configured.
+   */
+  private StopConfiguration buildStopConfiguration(Integer allocatedPort) {
+    return StopConfiguration.builder().host(host).port(port != null ? port : allocatedPort).build();
   }
 }
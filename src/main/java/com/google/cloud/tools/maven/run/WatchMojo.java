@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.run;
+
+import com.google.cloud.tools.maven.run.Runner.Factory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Starts the App Engine Development App Server in the background and keeps it running, syncing
+ * changed classes and web resources into the exploded WAR it serves until the build is interrupted.
+ * Web resources are not synced if the maven-war-plugin filters or overlays them, as the server
+ * would otherwise see unprocessed copies.
+ */
+@Mojo(name = "watch")
+public class WatchMojo extends AbstractRunMojo {
+
+  /** Number of seconds to wait for the server to start. Set to 0 to not wait. */
+  @Parameter(
+      defaultValue = "30",
+      alias = "devserver.startSuccessTimeout",
+      property = "app.devserver.startSuccessTimeout")
+  protected int startSuccessTimeout;
+
+  /** Compiled classes synced into WEB-INF/classes of the exploded WAR. */
+  @Parameter(
+      defaultValue = "${project.build.outputDirectory}",
+      alias = "devserver.classesDirectory",
+      property = "app.devserver.classesDirectory")
+  protected File classesDirectory;
+
+  /** Web resources synced into the root of the exploded WAR. */
+  @Parameter(
+      defaultValue = "${basedir}/src/main/webapp",
+      alias = "devserver.webappDirectory",
+      property = "app.devserver.webappDirectory")
+  protected File webappDirectory;
+
+  /** Milliseconds without changes after which a burst of changes is synced. */
+  @Parameter(
+      defaultValue = "300",
+      alias = "devserver.watchQuietPeriod",
+      property = "app.devserver.watchQuietPeriod")
+  protected long watchQuietPeriod;
+
+  private Runner.Factory factory = new Factory();
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (skip) {
+      getLog().info("Skipping appengine:watch");
+      return;
+    }
+    Map<Path, Path> directories = getSyncedDirectories();
+    // Ctrl+C or a kill only runs shutdown hooks, it does not unwind the watch loop
+    Runnable stopAction = stopOnce(newStopAction());
+    Thread shutdownHook = new Thread(stopAction, "appengine-watch-stop");
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+    try {
+      factory.newRunner(this).runAsync(startSuccessTimeout);
+      try (FileSync fileSync = new FileSync(directories, watchQuietPeriod, getLog())) {
+        getLog().info("Watching " + directories.keySet() + " for changes, press Ctrl+C to stop.");
+        fileSync.watch();
+      }
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Failed to sync changes to the Dev App Server", ex);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } finally {
+      stopAction.run();
+      try {
+        Runtime.getRuntime().removeShutdownHook(shutdownHook);
+      } catch (IllegalStateException ex) {
+        getLog().debug("Not removing the Dev App Server shutdown hook, the JVM is shutting down.");
+      }
+    }
+  }
+
+  /** Returns an action running {@code stopAction} the first time it is run only. */
+  static Runnable stopOnce(Runnable stopAction) {
+    AtomicBoolean stopped = new AtomicBoolean();
+    return () -> {
+      if (stopped.compareAndSet(false, true)) {
+        stopAction.run();
+      }
+    };
+  }
+
+  /** The watched server must reload the classes synced into it. */
+  @Override
+  public Boolean getAutomaticRestart() {
+    return Boolean.TRUE;
+  }
+
+  /** Returns the watched directories mapped to where they are synced in the served service. */
+  Map<Path, Path> getSyncedDirectories() throws MojoExecutionException {
+    List<Path> services = getServices();
+    if (services.size() != 1) {
+      throw new MojoExecutionException(
+          "appengine:watch syncs this module into a single service, found: " + services);
+    }
+    Path service = services.get(0);
+    Map<Path, Path> directories = new LinkedHashMap<>();
+    directories.put(classesDirectory.toPath(), service.resolve("WEB-INF").resolve("classes"));
+    if (isWebappProcessed()) {
+      getLog()
+          .warn(
+              "Not syncing "
+                  + webappDirectory
+                  + ": the maven-war-plugin filters or overlays web resources, run war:exploded"
+                  + " to update them.");
+    } else {
+      directories.put(webappDirectory.toPath(), service);
+    }
+    return directories;
+  }
+
+  /** Returns true if the maven-war-plugin filters or overlays web resources. */
+  private boolean isWebappProcessed() {
+    Plugin warPlugin = getMavenProject().getPlugin("org.apache.maven.plugins:maven-war-plugin");
+    if (warPlugin == null) {
+      return false;
+    }
+    List<Object> configurations = new ArrayList<>();
+    configurations.add(warPlugin.getConfiguration());
+    for (PluginExecution execution : warPlugin.getExecutions()) {
+      configurations.add(execution.getConfiguration());
+    }
+    for (Object configuration : configurations) {
+      if (!(configuration instanceof Xpp3Dom)) {
+        continue;
+      }
+      Xpp3Dom dom = (Xpp3Dom) configuration;
+      Xpp3Dom filtering = dom.getChild("filteringDeploymentDescriptors");
+      if (hasChildren(dom.getChild("webResources"))
+          || hasChildren(dom.getChild("overlays"))
+          || filtering != null && "true".equals(filtering.getValue())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasChildren(Xpp3Dom dom) {
+    return dom != null && dom.getChildCount() > 0;
+  }
+}
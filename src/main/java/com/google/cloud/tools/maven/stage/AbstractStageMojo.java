@@ -120,6 +120,37 @@ public abstract class AbstractStageMojo extends CloudSdkMojo {
   @Parameter(alias = "stage.enableJarClasses", property = "app.stage.enableJarClasses")
   private boolean enableJarClasses;
 
+  /**
+   * Only copy the classes and jars that changed since the previous stage, instead of deleting and
+   * re-staging the whole application. Falls back to a full stage for any change that appcfg would
+   * not copy verbatim.
+   *
+   * <p>Applies to App Engine standard environment only.
+   */
+  @Parameter(alias = "stage.incremental", property = "app.stage.incremental")
+  private boolean incremental;
+
+  /**
+   * With {@code incremental}, keep the JSPs compiled by the previous stage when no JSP, tag file,
+   * tag library descriptor or tag library jar changed and the SHA-256 hash of the Cloud SDK's
+   * appengine-tools-api.jar, which compiles them, is unchanged, instead of fully staging projects
+   * with JSPs. Compiled JSPs are not refreshed for changes to the other classes and jars they use.
+   *
+   * <p>Applies to App Engine standard environment only.
+   */
+  @Parameter(alias = "stage.reuseCompiledJsps", property = "app.stage.reuseCompiledJsps")
+  private boolean reuseCompiledJsps;
+
+  /**
+   * Directory of a content-addressed jar store. When set, staged jars are replaced with hard links
+   * to a single copy of each distinct jar in this directory, which can be shared by all modules and
+   * builds on the machine. Jars are left as copies if the store is on a different file system.
+   *
+   * <p>Applies to App Engine standard environment only.
+   */
+  @Parameter(alias = "stage.jarStoreDirectory", property = "app.stage.jarStoreDirectory")
+  private File jarStoreDirectory;
+
   // always disable update check and do not expose this as a parameter
   private boolean disableUpdateCheck = true;
 
@@ -216,6 +247,18 @@ public abstract class AbstractStageMojo extends CloudSdkMojo {
     return enableJarClasses;
   }
 
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  public boolean isReuseCompiledJsps() {
+    return reuseCompiledJsps;
+  }
+
+  public Path getJarStoreDirectory() {
+    return jarStoreDirectory == null ? null : jarStoreDirectory.toPath();
+  }
+
   public boolean isDisableUpdateCheck() {
     return disableUpdateCheck;
   }
@@ -18,6 +18,7 @@ package com.google.cloud.tools.maven.stage;
 
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import com.google.cloud.tools.maven.cloudsdk.BuildTimer;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -48,29 +49,104 @@ public class AppEngineWebXmlStager implements Stager {
 
   @Override
   public void stage() throws MojoExecutionException {
-    AppEngineWebXmlProjectStageConfiguration config = configBuilder.buildConfiguration();
-    Path stagingDirectory = config.getStagingDirectory();
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(stageMojo).start("stage")) {
+      AppEngineWebXmlProjectStageConfiguration config = configBuilder.buildConfiguration();
+      Path stagingDirectory = config.getStagingDirectory();
+
+      stageMojo.getLog().info("Staging the application to: " + stagingDirectory);
+      stageMojo.getLog().info("Detected App Engine appengine-web.xml based application.");
+
+      JarStore jarStore =
+          stageMojo.getJarStoreDirectory() == null
+              ? null
+              : new JarStore(stageMojo.getJarStoreDirectory(), stageMojo.getLog());
+      IncrementalStaging incrementalStaging = null;
+      if (stageMojo.isIncremental()) {
+        String jspCompiler = null;
+        if (stageMojo.isReuseCompiledJsps()) {
+          Path toolsJar = stageMojo.getAppEngineFactory().getAppEngineToolsJar();
+          try {
+            jspCompiler = IncrementalStaging.getJspCompilerKey(toolsJar);
+          } catch (IOException ex) {
+            throw new MojoExecutionException("Unable to identify the JSP compiler " + toolsJar, ex);
+          }
+        }
+        incrementalStaging = new IncrementalStaging(stageMojo.getLog(), jarStore, jspCompiler);
+        try {
+          if (incrementalStaging.update(config)) {
+            return;
+          }
+        } catch (IOException ex) {
+          throw new MojoExecutionException("Unable to incrementally update staging directory.", ex);
+        }
+      }
 
-    stageMojo.getLog().info("Staging the application to: " + stagingDirectory);
-    stageMojo.getLog().info("Detected App Engine appengine-web.xml based application.");
+      // delete staging directory if it exists
+      try {
+        Files.deleteIfExists(StagedConfigs.getRecordFile(stagingDirectory));
+      } catch (IOException ex) {
+        throw new MojoExecutionException("Unable to delete staged configuration record.", ex);
+      }
+      if (Files.exists(stagingDirectory)) {
+        stageMojo.getLog().info("Deleting the staging directory: " + stagingDirectory);
+        try {
+          FileUtils.deleteDirectory(stagingDirectory.toFile());
+        } catch (IOException ex) {
+          throw new MojoExecutionException("Unable to delete staging directory.", ex);
+        }
+      }
+      if (!stagingDirectory.toFile().mkdir()) {
+        throw new MojoExecutionException("Unable to create staging directory");
+      }
 
-    // delete staging directory if it exists
-    if (Files.exists(stagingDirectory)) {
-      stageMojo.getLog().info("Deleting the staging directory: " + stagingDirectory);
       try {
-        FileUtils.deleteDirectory(stagingDirectory.toFile());
+        stageMojo.getAppEngineFactory().appengineWebXmlStaging().stageStandard(config);
+      } catch (AppEngineException ex) {
+        throw new RuntimeException(ex);
+      }
+
+      // the staging directory was freshly created above, so no file in it can be written through
+      if (jarStore != null) {
+        try {
+          jarStore.linkAll(stagingDirectory);
+        } catch (IOException ex) {
+          throw new MojoExecutionException("Unable to link staged jars to the jar store.", ex);
+        }
+      }
+
+      if (incrementalStaging != null) {
+        try {
+          incrementalStaging.writeManifest(config);
+        } catch (IOException ex) {
+          throw new MojoExecutionException("Unable to record staging manifest.", ex);
+        }
+      }
+
+      try {
+        StagedConfigs.write(config);
       } catch (IOException ex) {
-        throw new MojoExecutionException("Unable to delete staging directory.", ex);
+        throw new MojoExecutionException("Unable to record staged configuration files.", ex);
       }
     }
-    if (!stagingDirectory.toFile().mkdir()) {
-      throw new MojoExecutionException("Unable to create staging directory");
-    }
+  }
 
-    try {
-      stageMojo.getAppEngineFactory().appengineWebXmlStaging().stageStandard(config);
-    } catch (AppEngineException ex) {
-      throw new RuntimeException(ex);
+  @Override
+  public void stageConfigs() throws MojoExecutionException {
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(stageMojo).start("stage.configs")) {
+      AppEngineWebXmlProjectStageConfiguration config = configBuilder.buildConfiguration();
+      try {
+        if (StagedConfigs.isUpToDate(config)) {
+          stageMojo
+              .getLog()
+              .info(
+                  "Configuration files are unchanged since the last stage, reusing: "
+                      + config.getStagingDirectory());
+          return;
+        }
+      } catch (IOException ex) {
+        throw new MojoExecutionException("Unable to check staged configuration files.", ex);
+      }
+      stage();
     }
   }
 
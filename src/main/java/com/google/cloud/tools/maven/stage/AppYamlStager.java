@@ -18,6 +18,7 @@ package com.google.cloud.tools.maven.stage;
 
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.configuration.AppYamlProjectStageConfiguration;
+import com.google.cloud.tools.maven.cloudsdk.BuildTimer;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -39,25 +40,32 @@ public class AppYamlStager implements Stager {
 
   @Override
   public void stage() throws MojoExecutionException {
-    AppYamlProjectStageConfiguration config = configBuilder.buildConfiguration();
-    Path stagingDirectory = config.getStagingDirectory();
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(stageMojo).start("stage")) {
+      AppYamlProjectStageConfiguration config = configBuilder.buildConfiguration();
+      Path stagingDirectory = config.getStagingDirectory();
 
-    stageMojo.getLog().info("Staging the application to: " + stagingDirectory);
-    stageMojo.getLog().info("Detected App Engine app.yaml based application.");
+      stageMojo.getLog().info("Staging the application to: " + stagingDirectory);
+      stageMojo.getLog().info("Detected App Engine app.yaml based application.");
+
+      if (!Files.exists(stagingDirectory)) {
+        try {
+          Files.createDirectories(stagingDirectory);
+        } catch (IOException ex) {
+          throw new MojoExecutionException("Unable to create staging directory.", ex);
+        }
+      }
 
-    if (!Files.exists(stagingDirectory)) {
       try {
-        Files.createDirectories(stagingDirectory);
-      } catch (IOException ex) {
-        throw new MojoExecutionException("Unable to create staging directory.", ex);
+        stageMojo.getAppEngineFactory().appYamlStaging().stageArchive(config);
+      } catch (AppEngineException ex) {
+        throw new RuntimeException(ex);
       }
     }
+  }
 
-    try {
-      stageMojo.getAppEngineFactory().appYamlStaging().stageArchive(config);
-    } catch (AppEngineException ex) {
-      throw new RuntimeException(ex);
-    }
+  @Override
+  public void stageConfigs() {
+    // configuration files are deployed directly from the appengine directory
   }
 
   static class ConfigBuilder {
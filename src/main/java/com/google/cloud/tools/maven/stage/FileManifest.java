@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/** Snapshot of the size, modification time and SHA-256 hash of every file in a directory. */
+public class FileManifest {
+
+  private final SortedMap<String, Entry> entries;
+
+  FileManifest(SortedMap<String, Entry> entries) {
+    this.entries = entries;
+  }
+
+  /**
+   * Scans all regular files under {@code directory}. Hashes are reused from {@code previous} for
+   * files whose size and modification time have not changed, so re-scanning an unchanged tree only
+   * costs a stat per file.
+   *
+   * @param directory the directory to scan, an empty manifest is returned if it does not exist
+   * @param previous an earlier manifest of the same directory, or null
+   */
+  public static FileManifest scan(Path directory, FileManifest previous) throws IOException {
+    SortedMap<String, Entry> entries = new TreeMap<>();
+    if (!Files.isDirectory(directory)) {
+      return new FileManifest(entries);
+    }
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (!attributes.isRegularFile()) {
+          continue;
+        }
+        String relativePath = toRelativePath(directory, file);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        Entry previousEntry = previous == null ? null : previous.entries.get(relativePath);
+        String sha256 =
+            previousEntry != null
+                    && previousEntry.size == size
+                    && previousEntry.lastModified == lastModified
+                ? previousEntry.sha256
+                : MoreFiles.asByteSource(file).hash(Hashing.sha256()).toString();
+        entries.put(relativePath, new Entry(size, lastModified, sha256));
+      }
+    }
+    return new FileManifest(entries);
+  }
+
+  static String toRelativePath(Path directory, Path file) {
+    return directory.relativize(file).toString().replace('\\', '/');
+  }
+
+  /** Returns the entries keyed by '/' separated path relative to the scanned directory. */
+  public Map<String, Entry> getEntries() {
+    return Collections.unmodifiableMap(entries);
+  }
+
+  /** Returns the relative paths that were added, removed or whose content differs. */
+  public Set<String> changedPaths(FileManifest other) {
+    Set<String> changed = new TreeSet<>();
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      Entry otherEntry = other.entries.get(entry.getKey());
+      if (otherEntry == null || !entry.getValue().hasSameContent(otherEntry)) {
+        changed.add(entry.getKey());
+      }
+    }
+    for (String path : other.entries.keySet()) {
+      if (!entries.containsKey(path)) {
+        changed.add(path);
+      }
+    }
+    return changed;
+  }
+
+  /** Returns true if both manifests list the same paths with the same content. */
+  public boolean hasSameContent(FileManifest other) {
+    return changedPaths(other).isEmpty();
+  }
+
+  /** Returns a single SHA-256 hash over every path and its content hash. */
+  public String contentHash() {
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      hasher.putString(entry.getKey(), StandardCharsets.UTF_8);
+      hasher.putByte((byte) 0);
+      hasher.putString(entry.getValue().sha256, StandardCharsets.UTF_8);
+      hasher.putByte((byte) 0);
+    }
+    return hasher.hash().toString();
+  }
+
+  /** A single file in the manifest. */
+  public static class Entry {
+    private final long size;
+    private final long lastModified;
+    private final String sha256;
+
+    Entry(long size, long lastModified, String sha256) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.sha256 = sha256;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    public String getSha256() {
+      return sha256;
+    }
+
+    boolean hasSameContent(Entry other) {
+      return size == other.size && sha256.equals(other.sha256);
+    }
+  }
+}
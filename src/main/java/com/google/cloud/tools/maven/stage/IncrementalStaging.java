@@ -0,0 +1,403 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import com.google.cloud.tools.maven.stage.FileManifest.Entry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Updates an existing appengine-web.xml staging directory in place when the only source changes are
+ * files that appcfg stages verbatim. Anything else (JSPs, descriptors, static content, changed
+ * staging options) falls back to a full stage so the output is always identical to a clean stage.
+ *
+ * <p>Projects with JSPs can optionally keep the JSP classes appcfg compiled in an earlier stage, as
+ * long as no JSP compilation input changed and the same Cloud SDK is used.
+ */
+class IncrementalStaging {
+
+  private static final String HEADER = "# appengine-maven-plugin staging manifest v1";
+  private static final String CLASSES_PREFIX = "WEB-INF/classes/";
+  private static final String LIB_PREFIX = "WEB-INF/lib/";
+
+  /** Files that JSPs are compiled from, besides the tag library jars. */
+  private static final List<String> JSP_INPUT_SUFFIXES =
+      ImmutableList.of(".jsp", ".jspx", ".jspf", ".tag", ".tagx", ".tld");
+
+  private final Log log;
+  private final JarStore jarStore;
+  private final String jspCompiler;
+
+  IncrementalStaging(Log log) {
+    this(log, null, null);
+  }
+
+  /**
+   * Creates an incremental stager.
+   *
+   * @param jarStore store to link changed jars from instead of copying them, or null
+   * @param jspCompiler identifies the JSP compiler used by staging, see {@link #getJspCompilerKey},
+   *     or null to fully stage every change to a project with JSPs
+   */
+  IncrementalStaging(Log log, JarStore jarStore, String jspCompiler) {
+    this.log = log;
+    this.jarStore = jarStore;
+    this.jspCompiler = jspCompiler;
+  }
+
+  /** Identifies the JSP compiler by the SHA-256 hash of the appengine-tools-api.jar running it. */
+  static String getJspCompilerKey(Path toolsJar) throws IOException {
+    return MoreFiles.asByteSource(toolsJar).hash(Hashing.sha256()).toString();
+  }
+
+  /** Location of the manifest recorded for a staging directory. */
+  static Path getManifestFile(Path stagingDirectory) {
+    return stagingDirectory.resolveSibling(stagingDirectory.getFileName() + ".manifest");
+  }
+
+  /**
+   * Brings the staging directory up to date by copying only changed files.
+   *
+   * @return true if the staging directory is up to date, false if a full stage is required
+   */
+  boolean update(AppEngineWebXmlProjectStageConfiguration config) throws IOException {
+    Path stagingDirectory = config.getStagingDirectory();
+    Path manifestFile = getManifestFile(stagingDirectory);
+    State previous = State.read(manifestFile);
+    if (previous == null || !Files.isDirectory(stagingDirectory)) {
+      log.info("No previous staging manifest found, performing a full stage.");
+      return false;
+    }
+    if (!previous.configurationHash.equals(hashConfiguration(config))) {
+      log.info("Staging configuration changed, performing a full stage.");
+      return false;
+    }
+    FileManifest staged = FileManifest.scan(stagingDirectory, previous.staged);
+    if (!staged.hasSameContent(previous.staged)) {
+      log.info("Staging directory was modified outside of staging, performing a full stage.");
+      return false;
+    }
+    FileManifest source = FileManifest.scan(config.getSourceDirectory(), previous.source);
+    Set<String> changed = source.changedPaths(previous.source);
+    if (changed.isEmpty()) {
+      log.info("Staged application is up to date.");
+      return true;
+    }
+    int reusedJsps = 0;
+    if (containsJsps(source) || containsJsps(previous.source)) {
+      if (!canReuseCompiledJsps(config, source, previous, changed)) {
+        return false;
+      }
+      reusedJsps = countJsps(source);
+    }
+    if (!canCopyVerbatim(config, source, previous, changed)) {
+      log.info("Changes require appcfg processing, performing a full stage.");
+      return false;
+    }
+
+    for (String path : changed) {
+      Path target = stagingDirectory.resolve(path);
+      // never write through an existing file, it may be a link into the jar store
+      Files.deleteIfExists(target);
+      Entry entry = source.getEntries().get(path);
+      if (entry == null) {
+        continue;
+      }
+      if (jarStore != null
+          && path.endsWith(".jar")
+          && jarStore.linkFromStore(entry.getSha256(), target)) {
+        continue;
+      }
+      // creates parent directories and preserves the modification time
+      FileUtils.copyFile(config.getSourceDirectory().resolve(path).toFile(), target.toFile());
+    }
+    log.info("Incrementally staged " + changed.size() + " changed file(s).");
+    if (reusedJsps > 0) {
+      log.info(
+          "JSP compilation cache: reused the compiled classes of all " + reusedJsps + " JSP(s).");
+    }
+    writeManifest(config, source, FileManifest.scan(stagingDirectory, staged));
+    return true;
+  }
+
+  /** Records the state of the source and staging directories after a full stage. */
+  void writeManifest(AppEngineWebXmlProjectStageConfiguration config) throws IOException {
+    State previous = State.read(getManifestFile(config.getStagingDirectory()));
+    writeManifest(
+        config,
+        FileManifest.scan(config.getSourceDirectory(), previous == null ? null : previous.source),
+        FileManifest.scan(config.getStagingDirectory(), null));
+  }
+
+  private void writeManifest(
+      AppEngineWebXmlProjectStageConfiguration config, FileManifest source, FileManifest staged)
+      throws IOException {
+    new State(hashConfiguration(config), jspCompiler, source, staged)
+        .write(getManifestFile(config.getStagingDirectory()));
+  }
+
+  /**
+   * JSPs compiled by the previous stage can be kept if they are compiled by the same tools jar, and
+   * none of the changed files is a JSP, tag file, tag library descriptor or tag library jar.
+   */
+  private boolean canReuseCompiledJsps(
+      AppEngineWebXmlProjectStageConfiguration config,
+      FileManifest source,
+      State previous,
+      Set<String> changed)
+      throws IOException {
+    if (jspCompiler == null) {
+      log.info(
+          "Changes to a project with JSPs require appcfg processing, performing a full stage.");
+      return false;
+    }
+    int jsps = countJsps(source);
+    if (!jspCompiler.equals(previous.jspCompiler)) {
+      log.info(
+          "JSP compilation cache: recompiling all "
+              + jsps
+              + " JSP(s), they were compiled by a different appengine-tools-api.jar, performing a"
+              + " full stage.");
+      return false;
+    }
+    List<String> changedInputs = new ArrayList<>();
+    for (String path : changed) {
+      boolean isJar = path.startsWith(LIB_PREFIX) && path.endsWith(".jar");
+      if (isJspInput(path)
+          || isJar && containsTagLibrary(config.getSourceDirectory().resolve(path))
+          || isJar && containsTagLibrary(config.getStagingDirectory().resolve(path))) {
+        changedInputs.add(path);
+      }
+    }
+    if (!changedInputs.isEmpty()) {
+      log.info(
+          "JSP compilation cache: recompiling all "
+              + jsps
+              + " JSP(s), changed JSP compilation input(s): "
+              + String.join(", ", changedInputs)
+              + ", performing a full stage.");
+      return false;
+    }
+    return true;
+  }
+
+  private static boolean isJspInput(String path) {
+    return JSP_INPUT_SUFFIXES.stream().anyMatch(path::endsWith);
+  }
+
+  /** Returns true if {@code jar} exists and contains a tag library descriptor. */
+  private static boolean containsTagLibrary(Path jar) throws IOException {
+    if (!Files.isRegularFile(jar)) {
+      return false;
+    }
+    try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+      return zipFile.stream()
+          .map(ZipEntry::getName)
+          .anyMatch(name -> name.startsWith("META-INF/") && name.endsWith(".tld"));
+    } catch (ZipException ex) {
+      // not a jar, so not a tag library either
+      return false;
+    }
+  }
+
+  /**
+   * Changed files can be copied directly only if appcfg would have copied them byte for byte: plain
+   * classes and jars, with no quickstart, jar splitting or class jarring that depend on them, and
+   * where the previous stage produced an exact copy of the previous source file.
+   */
+  @VisibleForTesting
+  static boolean canCopyVerbatim(
+      AppEngineWebXmlProjectStageConfiguration config,
+      FileManifest source,
+      State previous,
+      Set<String> changed) {
+    if (Boolean.TRUE.equals(config.getEnableQuickstart())) {
+      return false;
+    }
+    boolean jarSplitting =
+        Boolean.TRUE.equals(config.getEnableJarSplitting())
+            || !Strings.isNullOrEmpty(config.getJarSplittingExcludes());
+    boolean jarClasses = Boolean.TRUE.equals(config.getEnableJarClasses());
+    for (String path : changed) {
+      boolean isClass = path.startsWith(CLASSES_PREFIX);
+      boolean isJar = path.startsWith(LIB_PREFIX) && path.endsWith(".jar");
+      if (!(isClass && !jarClasses) && !(isJar && !jarSplitting)) {
+        return false;
+      }
+      Entry previousSource = previous.source.getEntries().get(path);
+      Entry previousStaged = previous.staged.getEntries().get(path);
+      if (previousSource == null && previousStaged != null) {
+        return false;
+      }
+      if (previousSource != null
+          && (previousStaged == null || !previousStaged.hasSameContent(previousSource))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean containsJsps(FileManifest manifest) {
+    return countJsps(manifest) > 0;
+  }
+
+  private static int countJsps(FileManifest manifest) {
+    return (int)
+        manifest.getEntries().keySet().stream()
+            .filter(path -> path.endsWith(".jsp") || path.endsWith(".jspx"))
+            .count();
+  }
+
+  @VisibleForTesting
+  static String hashConfiguration(AppEngineWebXmlProjectStageConfiguration config)
+      throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (Object value :
+        new Object[] {
+          config.getSourceDirectory(),
+          config.getCompileEncoding(),
+          config.getDeleteJsps(),
+          config.getDisableJarJsps(),
+          config.getDisableUpdateCheck(),
+          config.getDockerfile(),
+          config.getEnableJarClasses(),
+          config.getEnableJarSplitting(),
+          config.getEnableQuickstart(),
+          config.getJarSplittingExcludes(),
+          config.getRuntime()
+        }) {
+      hasher.putString(String.valueOf(value), StandardCharsets.UTF_8).putByte((byte) 0);
+    }
+    Path dockerfile = config.getDockerfile();
+    if (dockerfile != null && Files.exists(dockerfile)) {
+      hasher.putString(
+          MoreFiles.asByteSource(dockerfile).hash(Hashing.sha256()).toString(),
+          StandardCharsets.UTF_8);
+    }
+    return hasher.hash().toString();
+  }
+
+  /** The manifest file contents. */
+  @VisibleForTesting
+  static class State {
+    final String configurationHash;
+    final String jspCompiler;
+    final FileManifest source;
+    final FileManifest staged;
+
+    State(String configurationHash, String jspCompiler, FileManifest source, FileManifest staged) {
+      this.configurationHash = configurationHash;
+      this.jspCompiler = jspCompiler;
+      this.source = source;
+      this.staged = staged;
+    }
+
+    /** Returns the state stored in {@code file}, or null if it is missing or unreadable. */
+    static State read(Path file) throws IOException {
+      if (!Files.exists(file)) {
+        return null;
+      }
+      String configurationHash = null;
+      String jspCompiler = null;
+      SortedMap<String, Entry> source = new TreeMap<>();
+      SortedMap<String, Entry> staged = new TreeMap<>();
+      try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        if (!HEADER.equals(reader.readLine())) {
+          return null;
+        }
+        String line;
+        while ((line = reader.readLine()) != null) {
+          String[] fields = line.split(" ", 5);
+          if (fields[0].equals("configuration") && fields.length == 2) {
+            configurationHash = fields[1];
+          } else if (fields[0].equals("jspCompiler") && fields.length == 2) {
+            jspCompiler = fields[1];
+          } else if (fields.length == 5
+              && (fields[0].equals("source") || fields[0].equals("staged"))) {
+            Entry entry =
+                new Entry(Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[1]);
+            (fields[0].equals("source") ? source : staged).put(fields[4], entry);
+          } else {
+            return null;
+          }
+        }
+      } catch (NumberFormatException ex) {
+        return null;
+      }
+      if (configurationHash == null) {
+        return null;
+      }
+      return new State(
+          configurationHash, jspCompiler, new FileManifest(source), new FileManifest(staged));
+    }
+
+    void write(Path file) throws IOException {
+      try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+        writer.write(HEADER);
+        writer.newLine();
+        writer.write("configuration " + configurationHash);
+        writer.newLine();
+        if (jspCompiler != null) {
+          writer.write("jspCompiler " + jspCompiler);
+          writer.newLine();
+        }
+        write(writer, "source", source);
+        write(writer, "staged", staged);
+      }
+    }
+
+    private static void write(BufferedWriter writer, String section, FileManifest manifest)
+        throws IOException {
+      for (Map.Entry<String, Entry> entry : manifest.getEntries().entrySet()) {
+        Entry value = entry.getValue();
+        writer.write(
+            section
+                + " "
+                + value.getSha256()
+                + " "
+                + value.getSize()
+                + " "
+                + value.getLastModified()
+                + " "
+                + entry.getKey());
+        writer.newLine();
+      }
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Content-addressed store of jars keyed by their SHA-256 hash. Staged jars are replaced with hard
+ * links into the store, so a third-party jar shared by several services or builds is kept on disk
+ * once. Files in the store must never be modified in place, only replaced, since every staging
+ * directory linked to them shares the same bytes.
+ */
+class JarStore {
+
+  private final Path root;
+  private final Log log;
+
+  JarStore(Path root, Log log) {
+    this.root = root;
+    this.log = log;
+  }
+
+  /** Location in the store of a jar with the given content hash. */
+  Path getEntry(String sha256) {
+    return root.resolve(sha256.substring(0, 2)).resolve(sha256 + ".jar");
+  }
+
+  /**
+   * Replaces every jar under {@code stagingDirectory} with a link into the store, adding jars the
+   * store does not know yet. Jars are left as plain copies if the file system does not support hard
+   * links between the staging directory and the store.
+   *
+   * @return the number of jars that were already present in the store
+   */
+  int linkAll(Path stagingDirectory) throws IOException {
+    List<Path> jars;
+    try (Stream<Path> files = Files.walk(stagingDirectory)) {
+      jars =
+          files
+              .filter(file -> file.toString().endsWith(".jar") && Files.isRegularFile(file))
+              .collect(Collectors.toList());
+    }
+    int reused = 0;
+    for (Path jar : jars) {
+      String sha256 = MoreFiles.asByteSource(jar).hash(Hashing.sha256()).toString();
+      if (linkFromStore(sha256, jar)) {
+        reused++;
+      } else {
+        addToStore(sha256, jar);
+      }
+    }
+    if (!jars.isEmpty()) {
+      log.info(
+          "Linked "
+              + jars.size()
+              + " staged jar(s) to the jar store at "
+              + root
+              + ", "
+              + reused
+              + " already stored.");
+    }
+    return reused;
+  }
+
+  /**
+   * Points {@code target} at the stored jar with the given hash, replacing any existing file.
+   *
+   * @return true if the store contained the jar and {@code target} now links to it
+   */
+  boolean linkFromStore(String sha256, Path target) throws IOException {
+    Path entry = getEntry(sha256);
+    if (!Files.isRegularFile(entry)) {
+      return false;
+    }
+    Path parent = target.toAbsolutePath().getParent();
+    if (parent == null) {
+      return false;
+    }
+    Files.createDirectories(parent);
+    Path temporary = parent.resolve("." + UUID.randomUUID() + ".tmp");
+    if (!createLink(temporary, entry)) {
+      return false;
+    }
+    Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    return true;
+  }
+
+  /** Adds {@code jar} to the store by linking the store entry to it. */
+  private void addToStore(String sha256, Path jar) throws IOException {
+    Path entry = getEntry(sha256);
+    Path parent = entry.getParent();
+    if (parent == null) {
+      return;
+    }
+    Files.createDirectories(parent);
+    // link under a temporary name first so that concurrent builds never see a partial entry
+    Path temporary = parent.resolve("." + UUID.randomUUID() + ".tmp");
+    if (createLink(temporary, jar)) {
+      Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private boolean createLink(Path link, Path existing) {
+    try {
+      Files.createLink(link, existing);
+      return true;
+    } catch (UnsupportedOperationException | IOException ex) {
+      // typically the store and the staging directory are on different file systems
+      log.debug("Unable to create link " + link + " to " + existing, ex);
+      return false;
+    }
+  }
+}
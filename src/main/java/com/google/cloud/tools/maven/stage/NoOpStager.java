@@ -23,4 +23,9 @@ public class NoOpStager implements Stager {
   public void stage() {
     // do nothing
   }
+
+  @Override
+  public void stageConfigs() {
+    // do nothing
+  }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Records which WEB-INF descriptors the configuration yamls in a staging directory were generated
+ * from, so configuration-only deployments can reuse the staging directory instead of running appcfg
+ * again.
+ */
+class StagedConfigs {
+
+  /** The descriptors appcfg converts into WEB-INF/appengine-generated yamls. */
+  private static final List<String> DESCRIPTORS =
+      ImmutableList.of(
+          "appengine-web.xml",
+          "cron.xml",
+          "datastore-indexes.xml",
+          "dispatch.xml",
+          "dos.xml",
+          "queue.xml",
+          "appengine-generated/datastore-indexes-auto.xml");
+
+  private StagedConfigs() {}
+
+  /** Location of the record written for a staging directory. */
+  static Path getRecordFile(Path stagingDirectory) {
+    return stagingDirectory.resolveSibling(stagingDirectory.getFileName() + ".configs");
+  }
+
+  /** Returns true if the staged configuration yamls are up to date with the source descriptors. */
+  static boolean isUpToDate(AppEngineWebXmlProjectStageConfiguration config) throws IOException {
+    Path recordFile = getRecordFile(config.getStagingDirectory());
+    Path generatedDirectory =
+        config.getStagingDirectory().resolve("WEB-INF").resolve("appengine-generated");
+    if (!Files.isRegularFile(recordFile) || !Files.isDirectory(generatedDirectory)) {
+      return false;
+    }
+    String recorded = new String(Files.readAllBytes(recordFile), StandardCharsets.UTF_8).trim();
+    return recorded.equals(hash(config));
+  }
+
+  /** Records the descriptors the staging directory was just generated from. */
+  static void write(AppEngineWebXmlProjectStageConfiguration config) throws IOException {
+    Files.write(
+        getRecordFile(config.getStagingDirectory()),
+        (hash(config) + "\n").getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String hash(AppEngineWebXmlProjectStageConfiguration config) throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(IncrementalStaging.hashConfiguration(config), StandardCharsets.UTF_8);
+    Path webInf = config.getSourceDirectory().resolve("WEB-INF");
+    for (String descriptor : DESCRIPTORS) {
+      Path file = webInf.resolve(descriptor);
+      hasher.putString(descriptor, StandardCharsets.UTF_8).putByte((byte) 0);
+      if (Files.isRegularFile(file)) {
+        hasher.putString(
+            MoreFiles.asByteSource(file).hash(Hashing.sha256()).toString(), StandardCharsets.UTF_8);
+      }
+      hasher.putByte((byte) 0);
+    }
+    return hasher.hash().toString();
+  }
+}
@@ -42,4 +42,10 @@ public interface Stager {
   }
 
   void stage() throws MojoExecutionException;
+
+  /**
+   * Make sure the configuration files (cron.yaml, queue.yaml, etc) are available for a
+   * configuration-only deployment, staging the application only if that is needed to produce them.
+   */
+  void stageConfigs() throws MojoExecutionException;
 }
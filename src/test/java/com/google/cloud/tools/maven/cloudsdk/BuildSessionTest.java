@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BuildSessionTest {
+
+  @Mock private ExecutionListener delegate;
+  @Mock private ExecutionEvent event;
+  @Mock private MavenSession session;
+  @Mock private MavenSession moduleSession;
+
+  private final List<String> calls = new ArrayList<>();
+  private final MavenExecutionResult result = new DefaultMavenExecutionResult();
+  private MavenExecutionRequest request;
+
+  @Before
+  public void setUp() {
+    request = new DefaultMavenExecutionRequest();
+    request.setExecutionListener(delegate);
+    Mockito.when(session.getRequest()).thenReturn(request);
+  }
+
+  @Test
+  public void testKey_sharedBySessionCopies() {
+    Mockito.when(moduleSession.getRequest()).thenReturn(request);
+
+    Assert.assertSame(BuildSession.key(session), BuildSession.key(moduleSession));
+  }
+
+  @Test
+  public void testKey_noRequest() {
+    Assert.assertSame(moduleSession, BuildSession.key(moduleSession));
+  }
+
+  @Test
+  public void testOnEnd_runsActionsBeforeDelegate() {
+    Mockito.doAnswer(invocation -> calls.add("delegate")).when(delegate).sessionEnded(event);
+    BuildSession.onEnd(session, () -> calls.add("first"));
+    BuildSession.onEnd(session, () -> calls.add("second"));
+
+    request.getExecutionListener().projectStarted(event);
+    request.getExecutionListener().sessionEnded(event);
+
+    Assert.assertEquals(3, calls.size());
+    Assert.assertEquals("first", calls.get(0));
+    Assert.assertEquals("second", calls.get(1));
+    Assert.assertEquals("delegate", calls.get(2));
+    Mockito.verify(delegate).projectStarted(event);
+  }
+
+  @Test
+  public void testOnEnd_failingActionFailsBuild() {
+    Mockito.when(event.getSession()).thenReturn(session);
+    Mockito.when(session.getResult()).thenReturn(result);
+    IllegalStateException failure = new IllegalStateException("failed");
+    BuildSession.onEnd(
+        session,
+        () -> {
+          throw failure;
+        });
+    BuildSession.onEnd(session, () -> calls.add("after"));
+
+    request.getExecutionListener().sessionEnded(event);
+
+    Assert.assertEquals(1, result.getExceptions().size());
+    Assert.assertSame(failure, result.getExceptions().get(0));
+    Assert.assertEquals(1, calls.size());
+    Mockito.verify(delegate).sessionEnded(event);
+  }
+
+  @Test
+  public void testOnEnd_noRequest() {
+    BuildSession.onEnd(moduleSession, () -> calls.add("action"));
+
+    Assert.assertTrue(calls.isEmpty());
+  }
+}
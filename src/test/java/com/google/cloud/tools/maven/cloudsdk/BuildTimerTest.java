@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.base.Ticker;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BuildTimerTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private Log log;
+  @Mock private CloudSdkMojo mojo;
+  @Mock private MavenSession session;
+  @Mock private MavenProject project;
+
+  private final FakeTicker ticker = new FakeTicker();
+  private Path reportFile;
+  private BuildTimer timer;
+
+  @Before
+  public void setUp() {
+    reportFile = tempFolder.getRoot().toPath().resolve("appengine-metrics/timings.json");
+    timer = new BuildTimer(reportFile, log, ticker);
+  }
+
+  private JsonArray readPhases() throws IOException {
+    String json = new String(Files.readAllBytes(reportFile), StandardCharsets.UTF_8);
+    return JsonParser.parseString(json).getAsJsonObject().getAsJsonArray("phases");
+  }
+
+  @Test
+  public void testStart_recordsNestedPhases() throws IOException {
+    try (BuildTimer.Phase deploy = timer.start("deploy")) {
+      ticker.advance(100);
+      try (BuildTimer.Phase stage = timer.start("stage")) {
+        ticker.advance(200);
+        timer.addSubprocessTime(TimeUnit.MILLISECONDS.toNanos(150));
+      }
+      Assert.assertFalse(Files.exists(reportFile));
+      ticker.advance(300);
+      timer.addSubprocessTime(TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    JsonArray phases = readPhases();
+    Assert.assertEquals(2, phases.size());
+    JsonObject stage = phases.get(0).getAsJsonObject();
+    Assert.assertEquals("stage", stage.get("name").getAsString());
+    Assert.assertEquals("deploy", stage.get("parent").getAsString());
+    Assert.assertEquals(200, stage.get("millis").getAsLong());
+    Assert.assertEquals(150, stage.get("subprocessMillis").getAsLong());
+    JsonObject deploy = phases.get(1).getAsJsonObject();
+    Assert.assertEquals("deploy", deploy.get("name").getAsString());
+    Assert.assertFalse(deploy.has("parent"));
+    Assert.assertEquals(600, deploy.get("millis").getAsLong());
+    // includes the subprocess time of the nested stage phase
+    Assert.assertEquals(400, deploy.get("subprocessMillis").getAsLong());
+  }
+
+  @Test
+  public void testStart_aggregatesRepeatedPhases() throws IOException {
+    try (BuildTimer.Phase phase = timer.start("stage")) {
+      ticker.advance(100);
+    }
+    BuildTimer.Phase phase = timer.start("stage");
+    ticker.advance(300);
+    phase.close();
+    phase.close();
+
+    JsonObject stage = readPhases().get(0).getAsJsonObject();
+    Assert.assertEquals(2, stage.get("count").getAsInt());
+    Assert.assertEquals(400, stage.get("millis").getAsLong());
+    Assert.assertEquals(300, stage.get("maxMillis").getAsLong());
+  }
+
+  @Test
+  public void testAddSubprocessTime_noOpenPhase() {
+    timer.addSubprocessTime(1000);
+    timer.logSummary();
+
+    Mockito.verifyZeroInteractions(log);
+  }
+
+  @Test
+  public void testLogSummary() {
+    try (BuildTimer.Phase phase = timer.start("cloudsdk.resolve")) {
+      ticker.advance(1500);
+    }
+
+    timer.logSummary();
+
+    Mockito.verify(log).info("App Engine plugin timings:");
+    Mockito.verify(log)
+        .info(
+            String.format(
+                "  %-16s  %5s  %9s  %9s  %10s", "cloudsdk.resolve", 1, "1.5s", "1.5s", "0.0s"));
+    Mockito.verify(log).info("App Engine plugin timings written to " + reportFile);
+    Mockito.verify(log, Mockito.never()).info("  * included in the time of its parent phase");
+  }
+
+  @Test
+  public void testLogSummary_marksNestedPhases() {
+    try (BuildTimer.Phase stage = timer.start("stage")) {
+      ticker.advance(1000);
+      try (BuildTimer.Phase configs = timer.start("stage.configs")) {
+        ticker.advance(500);
+      }
+    }
+
+    timer.logSummary();
+
+    String format = "  %-15s  %5s  %9s  %9s  %10s";
+    Mockito.verify(log).info(String.format(format, "stage.configs *", 1, "0.5s", "0.5s", "0.0s"));
+    Mockito.verify(log).info(String.format(format, "stage", 1, "1.5s", "1.5s", "0.0s"));
+    Mockito.verify(log).info("  * included in the time of its parent phase");
+  }
+
+  @Test
+  public void testForMojo_sharedBySession() {
+    Mockito.when(mojo.isMetrics()).thenReturn(true);
+    Mockito.when(mojo.getMavenSession()).thenReturn(session);
+    Mockito.when(session.getTopLevelProject()).thenReturn(project);
+
+    Assert.assertSame(BuildTimer.forMojo(mojo), BuildTimer.forMojo(mojo));
+  }
+
+  @Test
+  public void testForMojo_noSession() {
+    Mockito.when(mojo.isMetrics()).thenReturn(true);
+
+    Assert.assertNotSame(BuildTimer.forMojo(mojo), BuildTimer.forMojo(mojo));
+  }
+
+  @Test
+  public void testForMojo_metricsNotRequested() {
+    BuildTimer disabled = BuildTimer.forMojo(mojo);
+    try (BuildTimer.Phase phase = disabled.start("stage")) {
+      disabled.addSubprocessTime(1000);
+    }
+    disabled.logSummary();
+
+    Mockito.verify(mojo, Mockito.never()).getMavenSession();
+    Mockito.verifyZeroInteractions(log);
+  }
+
+  @Test
+  public void testForMojo_summaryLoggedWhenBuildEnds() {
+    MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    Mockito.when(mojo.isMetrics()).thenReturn(true);
+    Mockito.when(mojo.getMavenSession()).thenReturn(session);
+    Mockito.when(mojo.getLog()).thenReturn(log);
+    Mockito.when(session.getRequest()).thenReturn(request);
+    Mockito.when(session.getExecutionRootDirectory()).thenReturn(tempFolder.getRoot().getPath());
+    try (BuildTimer.Phase phase = BuildTimer.forMojo(mojo).start("stage")) {
+      Mockito.verifyZeroInteractions(log);
+    }
+
+    request.getExecutionListener().sessionEnded(Mockito.mock(ExecutionEvent.class));
+
+    Mockito.verify(log).info("App Engine plugin timings:");
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long millis) {
+      nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+  }
+}
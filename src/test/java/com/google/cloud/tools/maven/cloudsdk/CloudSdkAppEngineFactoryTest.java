@@ -26,15 +26,23 @@ import com.google.cloud.tools.appengine.operations.cloudsdk.AppEngineJavaCompone
 import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkNotFoundException;
 import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkOutOfDateException;
 import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkVersionFileException;
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandler;
 import com.google.cloud.tools.managedcloudsdk.components.SdkComponent;
 import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.logging.Log;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -50,6 +58,8 @@ public class CloudSdkAppEngineFactoryTest {
   private final String ARTIFACT_ID = "appengine-maven-plugin";
   private final String ARTIFACT_VERSION = "0.1.0";
 
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
   @Mock private CloudSdkMojo mojoMock;
   @Mock private Log logMock;
   @Mock private MavenSession mavenSession;
@@ -75,14 +85,16 @@ public class CloudSdkAppEngineFactoryTest {
             Mockito.isNull(),
             Mockito.eq(logMock),
             Mockito.<SdkComponent>anyList(),
-            Mockito.anyBoolean());
+            Mockito.anyBoolean(),
+            Mockito.any());
     doReturn(INSTALL_SDK_PATH)
         .when(cloudSdkDownloader)
         .downloadIfNecessary(
             Mockito.anyString(),
             Mockito.eq(logMock),
             Mockito.<SdkComponent>anyList(),
-            Mockito.anyBoolean());
+            Mockito.anyBoolean(),
+            Mockito.any());
   }
 
   @Test
@@ -94,6 +106,44 @@ public class CloudSdkAppEngineFactoryTest {
     verify(mojoMock).getVerbosity();
   }
 
+  @Test
+  public void testNewConfigReader_doesNotBuildGcloud() {
+    Assert.assertNotNull(factory.newConfigReader());
+    verify(mojoMock, Mockito.never()).getArtifactId();
+    verify(mojoMock, Mockito.never()).getVerbosity();
+  }
+
+  @Test
+  public void testNewDevAppServerLogListener_closedWhenBuildEnds() throws IOException {
+    MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    when(mavenSession.getRequest()).thenReturn(request);
+    Path logFile = tempFolder.getRoot().toPath().resolve("dev_appserver.out");
+
+    FileOutputLineListener listener = factory.newDevAppServerLogListener(logFile);
+    listener.onOutputLine("started");
+    request.getExecutionListener().sessionEnded(Mockito.mock(ExecutionEvent.class));
+    listener.onOutputLine("after the build");
+
+    Assert.assertEquals(ImmutableList.of("started"), Files.readAllLines(logFile));
+  }
+
+  @Test
+  public void testNewDefaultProcessHandler_opensOutputFileOnStart() throws Exception {
+    Path outputFile = tempFolder.getRoot().toPath().resolve("logs/gcloud.log");
+    when(mojoMock.getOutputFile()).thenReturn(outputFile);
+
+    ProcessHandler handler = factory.newDefaultProcessHandler();
+    // a process failing to start never reaches the handler, which must not hold the file yet
+    Assert.assertFalse(Files.exists(outputFile));
+    Assert.assertFalse(
+        Thread.getAllStackTraces().keySet().stream()
+            .anyMatch(thread -> "gcloud-output-writer".equals(thread.getName())));
+
+    handler.handleProcess(new ProcessBuilder("echo", "hello").start());
+
+    Assert.assertEquals(ImmutableList.of("hello"), Files.readAllLines(outputFile));
+  }
+
   @Test
   public void testBuildCloudSdk_downloadWithVersion() {
     when(mojoMock.getCloudSdkHome()).thenReturn(null);
@@ -107,7 +157,11 @@ public class CloudSdkAppEngineFactoryTest {
     Assert.assertEquals(INSTALL_SDK_PATH, sdk.getPath());
     verify(cloudSdkDownloader)
         .downloadIfNecessary(
-            CLOUD_SDK_VERSION, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false);
+            CLOUD_SDK_VERSION,
+            logMock,
+            ImmutableList.of(SdkComponent.APP_ENGINE_JAVA),
+            false,
+            null);
     verifyNoMoreInteractions(cloudSdkChecker);
   }
 
@@ -123,7 +177,8 @@ public class CloudSdkAppEngineFactoryTest {
     // verify
     Assert.assertEquals(INSTALL_SDK_PATH, sdk.getPath());
     verify(cloudSdkDownloader)
-        .downloadIfNecessary(null, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false);
+        .downloadIfNecessary(
+            null, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false, null);
     verifyNoMoreInteractions(cloudSdkChecker);
   }
 
@@ -139,7 +194,8 @@ public class CloudSdkAppEngineFactoryTest {
 
     Assert.assertEquals(INSTALL_SDK_PATH, sdk.getPath());
     verify(cloudSdkDownloader)
-        .downloadIfNecessary(null, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), true);
+        .downloadIfNecessary(
+            null, logMock, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), true, null);
     verify(mavenSession).isOffline();
     verifyNoMoreInteractions(cloudSdkChecker);
   }
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.appengine.operations.CloudSdk;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CloudSdkCacheTest {
+
+  @Mock private CloudSdkMojo mojo;
+  @Mock private MavenSession session;
+  @Mock private MavenSession moduleSession;
+
+  private final AtomicInteger loads = new AtomicInteger();
+  private final Supplier<CloudSdk> loader =
+      () -> {
+        loads.incrementAndGet();
+        return Mockito.mock(CloudSdk.class);
+      };
+
+  @Before
+  public void setUp() {
+    when(mojo.getMavenSession()).thenReturn(session);
+    when(mojo.getCloudSdkVersion()).thenReturn("192.0.0");
+  }
+
+  @Test
+  public void testForSession() {
+    Assert.assertSame(CloudSdkCache.forSession(session), CloudSdkCache.forSession(session));
+  }
+
+  @Test
+  public void testForSession_sharedBySessionCopies() {
+    MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    when(session.getRequest()).thenReturn(request);
+    when(moduleSession.getRequest()).thenReturn(request);
+
+    Assert.assertSame(CloudSdkCache.forSession(session), CloudSdkCache.forSession(moduleSession));
+  }
+
+  @Test
+  public void testForSession_otherBuild() {
+    when(session.getRequest()).thenReturn(new DefaultMavenExecutionRequest());
+    when(moduleSession.getRequest()).thenReturn(new DefaultMavenExecutionRequest());
+
+    Assert.assertNotSame(
+        CloudSdkCache.forSession(session), CloudSdkCache.forSession(moduleSession));
+  }
+
+  @Test
+  public void testGet_sharedBySessionCopies() {
+    MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    when(session.getRequest()).thenReturn(request);
+    when(moduleSession.getRequest()).thenReturn(request);
+
+    CloudSdk first = CloudSdkCache.forSession(session).get(mojo, true, loader);
+    CloudSdk second = CloudSdkCache.forSession(moduleSession).get(mojo, true, loader);
+
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void testGet_resolvesOnce() {
+    CloudSdkCache cache = new CloudSdkCache();
+
+    CloudSdk first = cache.get(mojo, true, loader);
+    CloudSdk second = cache.get(mojo, true, loader);
+
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void testGet_appEngineComponentsSatisfyMinimal() {
+    CloudSdkCache cache = new CloudSdkCache();
+
+    CloudSdk withAppEngine = cache.get(mojo, true, loader);
+
+    Assert.assertSame(withAppEngine, cache.get(mojo, false, loader));
+    Assert.assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void testGet_minimalDoesNotSatisfyAppEngineComponents() {
+    CloudSdkCache cache = new CloudSdkCache();
+
+    cache.get(mojo, false, loader);
+    cache.get(mojo, true, loader);
+
+    Assert.assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testGet_differentVersion() {
+    CloudSdkCache cache = new CloudSdkCache();
+
+    cache.get(mojo, true, loader);
+    when(mojo.getCloudSdkVersion()).thenReturn("193.0.0");
+    cache.get(mojo, true, loader);
+
+    Assert.assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testGet_failuresAreNotCached() {
+    CloudSdkCache cache = new CloudSdkCache();
+
+    try {
+      cache.get(
+          mojo,
+          true,
+          () -> {
+            throw new IllegalStateException("not found");
+          });
+      Assert.fail();
+    } catch (IllegalStateException ex) {
+      Assert.assertEquals("not found", ex.getMessage());
+    }
+
+    cache.get(mojo, true, loader);
+    Assert.assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void testGetConfigReader_sharedPerSdk() {
+    CloudSdkCache cache = new CloudSdkCache();
+    ConfigReader configReader = Mockito.mock(ConfigReader.class);
+    AtomicInteger created = new AtomicInteger();
+    Supplier<ConfigReader> factory =
+        () -> {
+          created.incrementAndGet();
+          return configReader;
+        };
+
+    Assert.assertSame(configReader, cache.getConfigReader(mojo, factory));
+    Assert.assertSame(configReader, cache.getConfigReader(mojo, factory));
+    when(mojo.getCloudSdkVersion()).thenReturn("193.0.0");
+    cache.getConfigReader(mojo, factory);
+
+    Assert.assertEquals(2, created.get());
+  }
+
+  @Test
+  public void testGetConfigReader_sharedBySessionCopies() {
+    MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    when(session.getRequest()).thenReturn(request);
+    when(moduleSession.getRequest()).thenReturn(request);
+    AtomicInteger created = new AtomicInteger();
+    Supplier<ConfigReader> factory =
+        () -> {
+          created.incrementAndGet();
+          return Mockito.mock(ConfigReader.class);
+        };
+
+    ConfigReader first = CloudSdkCache.forSession(session).getConfigReader(mojo, factory);
+    ConfigReader second = CloudSdkCache.forSession(moduleSession).getConfigReader(mojo, factory);
+
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, created.get());
+  }
+}
@@ -18,6 +18,7 @@ package com.google.cloud.tools.maven.cloudsdk;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -28,6 +29,7 @@ import com.google.cloud.tools.managedcloudsdk.BadCloudSdkVersionException;
 import com.google.cloud.tools.managedcloudsdk.ManagedCloudSdk;
 import com.google.cloud.tools.managedcloudsdk.ManagedSdkVerificationException;
 import com.google.cloud.tools.managedcloudsdk.ManagedSdkVersionMismatchException;
+import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import com.google.cloud.tools.managedcloudsdk.UnsupportedOsException;
 import com.google.cloud.tools.managedcloudsdk.Version;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExecutionException;
@@ -37,20 +39,41 @@ import com.google.cloud.tools.managedcloudsdk.components.SdkComponentInstaller;
 import com.google.cloud.tools.managedcloudsdk.components.SdkUpdater;
 import com.google.cloud.tools.managedcloudsdk.install.SdkInstaller;
 import com.google.common.collect.ImmutableList;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import org.apache.maven.plugin.logging.Log;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 @RunWith(MockitoJUnitRunner.class)
 public class CloudSdkDownloaderTest {
 
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
   @Mock private Log log;
   @Mock private Function<String, ManagedCloudSdk> managedCloudSdkFactory;
   @Mock private ManagedCloudSdk managedCloudSdk;
@@ -60,11 +83,14 @@ public class CloudSdkDownloaderTest {
   @Mock private SdkComponentInstaller componentInstaller;
   @Mock private SdkUpdater updater;
 
-  @InjectMocks private CloudSdkDownloader downloader;
+  private CloudSdkDownloader downloader;
 
   @Before
   public void setup() {
+    downloader = new CloudSdkDownloader(managedCloudSdkFactory);
     when(managedCloudSdkFactory.apply(version)).thenReturn(managedCloudSdk);
+    when(managedCloudSdk.getSdkHome())
+        .thenReturn(tempFolder.getRoot().toPath().resolve("google-cloud-sdk"));
     when(managedCloudSdk.newInstaller()).thenReturn(installer);
     when(managedCloudSdk.newComponentInstaller()).thenReturn(componentInstaller);
     when(managedCloudSdk.newUpdater()).thenReturn(updater);
@@ -75,19 +101,22 @@ public class CloudSdkDownloaderTest {
       throws ManagedSdkVerificationException, ManagedSdkVersionMismatchException {
     when(managedCloudSdk.isInstalled()).thenReturn(false);
     downloader.downloadIfNecessary(
-        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false);
+        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false, Duration.ZERO);
     verify(managedCloudSdk).newInstaller();
   }
 
   @Test
   public void testDownloadCloudSdk_installSingeComponent()
-      throws ManagedSdkVerificationException, ManagedSdkVersionMismatchException {
+      throws ManagedSdkVerificationException, ManagedSdkVersionMismatchException,
+          InterruptedException, CommandExitException, CommandExecutionException {
     when(managedCloudSdk.isInstalled()).thenReturn(true);
     when(managedCloudSdk.hasComponent(SdkComponent.APP_ENGINE_JAVA)).thenReturn(false);
     downloader.downloadIfNecessary(
-        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false);
+        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false, Duration.ZERO);
     verify(managedCloudSdk, never()).newInstaller();
     verify(managedCloudSdk).newComponentInstaller();
+    verify(componentInstaller)
+        .installComponents(eq(ImmutableList.of(SdkComponent.APP_ENGINE_JAVA)), any(), any());
   }
 
   @Test
@@ -98,11 +127,17 @@ public class CloudSdkDownloaderTest {
     when(managedCloudSdk.hasComponent(SdkComponent.APP_ENGINE_JAVA)).thenReturn(false);
     when(managedCloudSdk.hasComponent(SdkComponent.BETA)).thenReturn(false);
     downloader.downloadIfNecessary(
-        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA, SdkComponent.BETA), false);
+        version,
+        log,
+        ImmutableList.of(SdkComponent.APP_ENGINE_JAVA, SdkComponent.BETA),
+        false,
+        Duration.ZERO);
     verify(managedCloudSdk, never()).newInstaller();
-    verify(managedCloudSdk, times(2)).newComponentInstaller();
-    verify(componentInstaller).installComponent(eq(SdkComponent.APP_ENGINE_JAVA), any(), any());
-    verify(componentInstaller).installComponent(eq(SdkComponent.BETA), any(), any());
+    verify(managedCloudSdk).newComponentInstaller();
+    verify(componentInstaller)
+        .installComponents(
+            eq(ImmutableList.of(SdkComponent.APP_ENGINE_JAVA, SdkComponent.BETA)), any(), any());
+    verify(componentInstaller, never()).installComponent(any(), any(), any());
   }
 
   @Test
@@ -113,17 +148,22 @@ public class CloudSdkDownloaderTest {
     when(managedCloudSdk.hasComponent(SdkComponent.APP_ENGINE_JAVA)).thenReturn(false);
     when(managedCloudSdk.hasComponent(SdkComponent.BETA)).thenReturn(true);
     downloader.downloadIfNecessary(
-        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA, SdkComponent.BETA), false);
+        version,
+        log,
+        ImmutableList.of(SdkComponent.APP_ENGINE_JAVA, SdkComponent.BETA),
+        false,
+        Duration.ZERO);
     verify(managedCloudSdk, never()).newInstaller();
     verify(managedCloudSdk).newComponentInstaller();
-    verify(componentInstaller).installComponent(eq(SdkComponent.APP_ENGINE_JAVA), any(), any());
+    verify(componentInstaller)
+        .installComponents(eq(ImmutableList.of(SdkComponent.APP_ENGINE_JAVA)), any(), any());
   }
 
   @Test
   public void testDownloadCloudSdk_ignoreComponents()
       throws ManagedSdkVerificationException, ManagedSdkVersionMismatchException {
     when(managedCloudSdk.isInstalled()).thenReturn(true);
-    downloader.downloadIfNecessary(version, log, Collections.emptyList(), false);
+    downloader.downloadIfNecessary(version, log, Collections.emptyList(), false, Duration.ZERO);
     verify(managedCloudSdk, never()).newInstaller();
     verify(managedCloudSdk, never()).newComponentInstaller();
   }
@@ -135,16 +175,186 @@ public class CloudSdkDownloaderTest {
     when(managedCloudSdk.hasComponent(SdkComponent.APP_ENGINE_JAVA)).thenReturn(true);
     when(managedCloudSdk.isUpToDate()).thenReturn(false);
     downloader.downloadIfNecessary(
-        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false);
+        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), false, Duration.ZERO);
     verify(managedCloudSdk, never()).newInstaller();
     verify(managedCloudSdk, never()).newComponentInstaller();
     verify(managedCloudSdk).newUpdater();
   }
 
+  @Test
+  public void testDownloadCloudSdk_updateCheckFailure()
+      throws ManagedSdkVerificationException, ManagedSdkVersionMismatchException {
+    ManagedSdkVerificationException failure = new ManagedSdkVerificationException("failed");
+    when(managedCloudSdk.isInstalled()).thenReturn(true);
+    when(managedCloudSdk.isUpToDate()).thenThrow(failure);
+    try {
+      downloader.downloadIfNecessary(version, log, Collections.emptyList(), false, Duration.ZERO);
+      Assert.fail();
+    } catch (RuntimeException ex) {
+      Assert.assertSame(failure, ex.getCause());
+    }
+    verify(managedCloudSdk, never()).newUpdater();
+  }
+
+  @Test
+  public void testDownloadCloudSdk_updateCheckCached() throws Exception {
+    Path sdkHome = tempFolder.getRoot().toPath().resolve("google-cloud-sdk");
+    Instant now = Instant.parse("2018-06-01T12:00:00Z");
+    CloudSdkDownloader cachingDownloader =
+        new CloudSdkDownloader(managedCloudSdkFactory, null, Clock.fixed(now, ZoneOffset.UTC));
+    when(managedCloudSdk.isInstalled()).thenReturn(true);
+    when(managedCloudSdk.isUpToDate()).thenReturn(true);
+
+    cachingDownloader.downloadIfNecessary(
+        version, log, Collections.emptyList(), false, Duration.ofHours(24));
+    Path updateCheckFile = CloudSdkDownloader.getUpdateCheckFile(sdkHome);
+    Assert.assertEquals(
+        Long.toString(now.toEpochMilli()),
+        new String(Files.readAllBytes(updateCheckFile), StandardCharsets.UTF_8));
+
+    cachingDownloader.downloadIfNecessary(
+        version, log, Collections.emptyList(), false, Duration.ofHours(24));
+    verify(managedCloudSdk, times(1)).isUpToDate();
+  }
+
+  @Test
+  public void testDownloadCloudSdk_updateCheckExpired() throws Exception {
+    Path sdkHome = tempFolder.getRoot().toPath().resolve("google-cloud-sdk");
+    Instant now = Instant.parse("2018-06-01T12:00:00Z");
+    Files.write(
+        CloudSdkDownloader.getUpdateCheckFile(sdkHome),
+        Long.toString(now.minus(Duration.ofHours(25)).toEpochMilli())
+            .getBytes(StandardCharsets.UTF_8));
+    CloudSdkDownloader cachingDownloader =
+        new CloudSdkDownloader(managedCloudSdkFactory, null, Clock.fixed(now, ZoneOffset.UTC));
+    when(managedCloudSdk.isInstalled()).thenReturn(true);
+    when(managedCloudSdk.isUpToDate()).thenReturn(false);
+
+    cachingDownloader.downloadIfNecessary(
+        version, log, Collections.emptyList(), false, Duration.ofHours(24));
+
+    verify(managedCloudSdk).isUpToDate();
+    verify(managedCloudSdk).newUpdater();
+    Assert.assertEquals(
+        Long.toString(now.toEpochMilli()),
+        new String(
+            Files.readAllBytes(CloudSdkDownloader.getUpdateCheckFile(sdkHome)),
+            StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testDownloadCloudSdk_updateCheckNotCachedByDefault() throws Exception {
+    when(managedCloudSdk.isInstalled()).thenReturn(true);
+    when(managedCloudSdk.isUpToDate()).thenReturn(true);
+
+    downloader.downloadIfNecessary(version, log, Collections.emptyList(), false, Duration.ZERO);
+    downloader.downloadIfNecessary(version, log, Collections.emptyList(), false, Duration.ZERO);
+
+    verify(managedCloudSdk, times(2)).isUpToDate();
+    Assert.assertFalse(
+        Files.exists(
+            CloudSdkDownloader.getUpdateCheckFile(
+                tempFolder.getRoot().toPath().resolve("google-cloud-sdk"))));
+  }
+
+  @Test
+  public void testDownloadCloudSdk_concurrentInstallers() throws Exception {
+    AtomicBoolean installed = new AtomicBoolean();
+    AtomicInteger installs = new AtomicInteger();
+    AtomicInteger concurrentInstallers = new AtomicInteger();
+    AtomicInteger maxConcurrentInstallers = new AtomicInteger();
+    when(managedCloudSdk.isInstalled()).thenAnswer(invocation -> installed.get());
+    when(managedCloudSdk.isUpToDate()).thenReturn(true);
+    doAnswer(
+            invocation -> {
+              int concurrent = concurrentInstallers.incrementAndGet();
+              maxConcurrentInstallers.accumulateAndGet(concurrent, Math::max);
+              Thread.sleep(50);
+              installs.incrementAndGet();
+              installed.set(true);
+              concurrentInstallers.decrementAndGet();
+              return null;
+            })
+        .when(installer)
+        .install(any(), any());
+
+    int builds = 16;
+    ExecutorService executor = Executors.newFixedThreadPool(builds);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Path>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < builds; i++) {
+        results.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return downloader.downloadIfNecessary(
+                      version, log, Collections.emptyList(), false, Duration.ZERO);
+                }));
+      }
+      start.countDown();
+      for (Future<Path> result : results) {
+        Assert.assertEquals(
+            tempFolder.getRoot().toPath().resolve("google-cloud-sdk"),
+            result.get(30, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Assert.assertEquals(1, installs.get());
+    Assert.assertEquals(1, maxConcurrentInstallers.get());
+    verify(managedCloudSdk, times(builds)).isInstalled();
+  }
+
+  @Test
+  public void testDownloadCloudSdk_writesMetrics() throws Exception {
+    Path metricsFile = tempFolder.getRoot().toPath().resolve("target/metrics/cloud-sdk.json");
+    CloudSdkDownloader metricsDownloader =
+        new CloudSdkDownloader(managedCloudSdkFactory, metricsFile);
+    when(managedCloudSdk.isInstalled()).thenReturn(false);
+    when(managedCloudSdk.isUpToDate()).thenReturn(true);
+    doAnswer(
+            invocation -> {
+              ProgressListener listener = invocation.getArgument(0);
+              ProgressListener download = listener.newChild(1);
+              download.start("Downloading https://example.com/sdk.tar.gz", 2048);
+              download.update(2048);
+              download.done();
+              return null;
+            })
+        .when(installer)
+        .install(any(), any());
+
+    metricsDownloader.downloadIfNecessary(
+        version, log, Collections.emptyList(), false, Duration.ZERO);
+
+    JsonObject metrics =
+        JsonParser.parseString(new String(Files.readAllBytes(metricsFile), StandardCharsets.UTF_8))
+            .getAsJsonObject();
+    JsonObject task = metrics.getAsJsonArray("tasks").get(0).getAsJsonObject();
+    Assert.assertEquals(
+        "Downloading https://example.com/sdk.tar.gz", task.get("name").getAsString());
+    Assert.assertEquals(2048, task.get("bytes").getAsLong());
+    Assert.assertTrue(task.has("millis"));
+  }
+
+  @Test
+  public void testDownloadCloudSdk_noMetricsWithoutTasks() throws Exception {
+    Path metricsFile = tempFolder.getRoot().toPath().resolve("cloud-sdk.json");
+    when(managedCloudSdk.isInstalled()).thenReturn(true);
+    when(managedCloudSdk.isUpToDate()).thenReturn(true);
+
+    new CloudSdkDownloader(managedCloudSdkFactory, metricsFile)
+        .downloadIfNecessary(version, log, Collections.emptyList(), false, Duration.ZERO);
+
+    Assert.assertFalse(Files.exists(metricsFile));
+  }
+
   @Test
   public void testDownloadCloudSdk_offlineMode() {
     downloader.downloadIfNecessary(
-        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), true);
+        version, log, ImmutableList.of(SdkComponent.APP_ENGINE_JAVA), true, Duration.ZERO);
     verify(managedCloudSdk).getSdkHome();
     verifyNoMoreInteractions(managedCloudSdk);
   }
@@ -17,20 +17,24 @@
 package com.google.cloud.tools.maven.cloudsdk;
 
 import static org.junit.Assert.fail;
-import static org.mockito.Mockito.mock;
 
 import com.google.cloud.tools.appengine.operations.Gcloud;
-import com.google.cloud.tools.appengine.operations.cloudsdk.serialization.CloudSdkConfig;
+import com.google.common.base.Ticker;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
-import junitparams.converters.Nullable;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -41,25 +45,39 @@ public class ConfigReaderTest {
   @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
 
   @Mock private Gcloud gcloud;
-  @InjectMocks private ConfigReader testReader;
+  private final Map<String, String> environment = new HashMap<>();
+  private final AtomicInteger gcloudRequests = new AtomicInteger();
+  private ConfigReader testReader;
 
   @Before
   public void setUp() throws Exception {
     MockitoAnnotations.initMocks(this);
-    Mockito.when(gcloud.getConfig()).thenReturn(mock(CloudSdkConfig.class));
+    testReader =
+        new ConfigReader(
+            () -> {
+              gcloudRequests.incrementAndGet();
+              return gcloud;
+            },
+            new GcloudConfigDirectory(environment, temporaryFolder.getRoot().toPath(), false),
+            new BuildTimer(null, null, Ticker.systemTicker()));
+  }
+
+  private void mockConfig(String json) throws Exception {
+    Mockito.when(gcloud.runCommand(Arrays.asList("config", "list", "--format=json")))
+        .thenReturn(json);
   }
 
   @Test
   public void testGetProjectId_gcloudPass() throws Exception {
-    Mockito.when(gcloud.getConfig().getProject()).thenReturn("some-project");
+    mockConfig("{\"core\": {\"project\": \"some-project\"}}");
 
     Assert.assertEquals("some-project", testReader.getProjectId());
   }
 
   @Test
-  @Parameters({"null", ""})
-  public void testGetProjectId_gcloudFail(@Nullable String gcloudProject) throws Exception {
-    Mockito.when(gcloud.getConfig().getProject()).thenReturn(gcloudProject);
+  @Parameters({"{}", "{\"core\": {\"project\": \"\"}}"})
+  public void testGetProjectId_gcloudFail(String json) throws Exception {
+    mockConfig(json);
 
     try {
       testReader.getProjectId();
@@ -68,4 +86,70 @@ public class ConfigReaderTest {
       Assert.assertEquals("Project was not found in gcloud config", ex.getMessage());
     }
   }
+
+  @Test
+  public void testGetProjectId_invalidOutput() throws Exception {
+    mockConfig("not json {");
+
+    try {
+      testReader.getProjectId();
+      fail();
+    } catch (RuntimeException ex) {
+      Assert.assertEquals("Failed to read project from gcloud config", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testGetProjectId_fromDisk() throws Exception {
+    Path configurations =
+        Files.createDirectories(
+            temporaryFolder.getRoot().toPath().resolve(".config/gcloud/configurations"));
+    Files.write(
+        configurations.resolve("config_default"),
+        "[core]\nproject = disk-project\n".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertEquals("disk-project", testReader.getProjectId());
+    Mockito.verifyNoMoreInteractions(gcloud);
+    // the Cloud SDK is not even resolved
+    Assert.assertEquals(0, gcloudRequests.get());
+  }
+
+  @Test
+  public void testGetProjectId_fromEnvironment() throws Exception {
+    environment.put("CLOUDSDK_CONFIG", temporaryFolder.newFolder("gcloud").getPath());
+    temporaryFolder.newFolder("gcloud", "configurations");
+    temporaryFolder.newFile("gcloud/configurations/config_default");
+    environment.put("CLOUDSDK_CORE_PROJECT", "env-project");
+
+    Assert.assertEquals("env-project", testReader.getProjectId());
+    Mockito.verifyNoMoreInteractions(gcloud);
+  }
+
+  @Test
+  public void testGetProjectId_fromEnvironmentWithoutConfigFile() throws Exception {
+    environment.put("CLOUDSDK_CORE_PROJECT", "env-project");
+
+    Assert.assertEquals("env-project", testReader.getProjectId());
+    Mockito.verifyNoMoreInteractions(gcloud);
+    Assert.assertEquals(0, gcloudRequests.get());
+  }
+
+  @Test
+  public void testGetConfig_readOnce() throws Exception {
+    mockConfig(
+        "{\"core\": {\"project\": \"some-project\", \"account\": \"user@example.com\","
+            + " \"disable_usage_reporting\": true},"
+            + " \"compute\": {\"region\": \"us-central1\", \"zone\": \"us-central1-a\"}}");
+
+    GcloudConfig config = testReader.getConfig();
+    Assert.assertEquals("some-project", testReader.getProjectId());
+    Assert.assertSame(config, testReader.getConfig());
+
+    Assert.assertEquals("user@example.com", config.getAccount());
+    Assert.assertEquals("us-central1", config.getRegion());
+    Assert.assertEquals("us-central1-a", config.getZone());
+    Assert.assertEquals("true", config.getProperty("core", "disable_usage_reporting"));
+    Assert.assertNull(config.getProperty("app", "cloud_build_timeout"));
+    Mockito.verify(gcloud).runCommand(Mockito.anyList());
+  }
 }
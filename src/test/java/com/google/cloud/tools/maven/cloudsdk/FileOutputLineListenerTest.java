@@ -0,0 +1,193 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FileOutputLineListenerTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private Log log;
+
+  private Path logFile;
+
+  @Before
+  public void setUp() {
+    logFile = tempFolder.getRoot().toPath().resolve("dev_appserver.out");
+  }
+
+  @Test
+  public void testOnOutputLine_writesLinesInOrder() throws IOException {
+    List<String> expected = new ArrayList<>();
+    FileOutputLineListener listener =
+        new FileOutputLineListener(
+            logFile, "test output", "test-writer", log, false, 16, 10, 1 << 20, 3);
+    for (int i = 0; i < 1000; i++) {
+      expected.add("line " + i);
+      listener.onOutputLine("line " + i);
+    }
+    listener.close();
+
+    Assert.assertEquals(expected, Files.readAllLines(logFile));
+    Mockito.verifyZeroInteractions(log);
+  }
+
+  @Test
+  public void testOnOutputLine_concurrentWriters() throws InterruptedException, IOException {
+    FileOutputLineListener listener =
+        new FileOutputLineListener(
+            logFile, "test output", "test-writer", log, false, 4, 10, 1 << 20, 3);
+    List<Thread> threads = new ArrayList<>();
+    for (int thread = 0; thread < 4; thread++) {
+      final String prefix = "thread " + thread;
+      threads.add(
+          new Thread(
+              () -> {
+                for (int i = 0; i < 250; i++) {
+                  listener.onOutputLine(prefix);
+                }
+              }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    listener.close();
+
+    Assert.assertEquals(1000, Files.readAllLines(logFile).size());
+  }
+
+  @Test
+  public void testOnOutputLine_flushedWhileRunning() throws InterruptedException, IOException {
+    FileOutputLineListener listener =
+        new FileOutputLineListener(
+            logFile, "test output", "test-writer", log, false, 16, 10, 1 << 20, 3);
+    listener.onOutputLine("started");
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (Files.size(logFile) == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    Assert.assertEquals(ImmutableList.of("started"), Files.readAllLines(logFile));
+    listener.close();
+  }
+
+  @Test
+  public void testOnOutputLine_rotates() throws IOException {
+    // each line takes 7 bytes, so every file holds 2 lines
+    FileOutputLineListener listener =
+        new FileOutputLineListener(
+            logFile, "test output", "test-writer", log, false, 16, 10, 14, 2);
+    for (int i = 0; i < 8; i++) {
+      listener.onOutputLine("line " + i);
+    }
+    listener.close();
+
+    Assert.assertEquals(ImmutableList.of("line 6", "line 7"), Files.readAllLines(logFile));
+    Assert.assertEquals(
+        ImmutableList.of("line 4", "line 5"),
+        Files.readAllLines(FileOutputLineListener.getRotatedFile(logFile, 1)));
+    Assert.assertEquals(
+        ImmutableList.of("line 2", "line 3"),
+        Files.readAllLines(FileOutputLineListener.getRotatedFile(logFile, 2)));
+    Assert.assertFalse(Files.exists(FileOutputLineListener.getRotatedFile(logFile, 3)));
+  }
+
+  @Test
+  public void testOnOutputLine_warnsWithDescription() throws IOException {
+    // a non empty directory in the way of the rotated file fails the rotation
+    Path rotated = FileOutputLineListener.getRotatedFile(logFile, 1);
+    Files.createDirectories(rotated.resolve("child"));
+    FileOutputLineListener listener =
+        new FileOutputLineListener(
+            logFile, "test output", "test-writer", log, false, 16, 10, 14, 1);
+    for (int i = 0; i < 4; i++) {
+      listener.onOutputLine("line " + i);
+    }
+    listener.close();
+
+    Mockito.verify(log)
+        .warn(Mockito.startsWith("Failed to write test output to " + logFile + ": "));
+  }
+
+  @Test
+  public void testWriterThreadName() {
+    FileOutputLineListener listener =
+        new FileOutputLineListener(logFile, "gcloud output", "gcloud-output-writer", log, false);
+    try {
+      Assert.assertTrue(
+          Thread.getAllStackTraces().keySet().stream()
+              .anyMatch(thread -> "gcloud-output-writer".equals(thread.getName())));
+    } finally {
+      listener.close();
+    }
+  }
+
+  @Test
+  public void testOnOutputLine_appends() throws IOException {
+    Files.write(logFile, ImmutableList.of("existing"));
+    FileOutputLineListener listener =
+        new FileOutputLineListener(logFile, "test output", "test-writer", log, true);
+    listener.onOutputLine("appended");
+    listener.close();
+
+    Assert.assertEquals(ImmutableList.of("existing", "appended"), Files.readAllLines(logFile));
+  }
+
+  @Test
+  public void testOnOutputLine_appendedFileNotRotated() throws IOException {
+    Files.write(logFile, new byte[11 * 1024 * 1024]);
+    FileOutputLineListener listener =
+        new FileOutputLineListener(logFile, "test output", "test-writer", log, true);
+    listener.onOutputLine("appended");
+    listener.close();
+
+    Assert.assertFalse(Files.exists(FileOutputLineListener.getRotatedFile(logFile, 1)));
+    Assert.assertEquals(11 * 1024 * 1024 + "appended\n".length(), Files.size(logFile));
+  }
+
+  @Test
+  public void testOnOutputLine_ignoredAfterClose() throws IOException {
+    FileOutputLineListener listener =
+        new FileOutputLineListener(
+            logFile, "test output", "test-writer", log, false, 16, 10, 1 << 20, 3);
+    listener.onOutputLine("before");
+    listener.close();
+    listener.onOutputLine("after");
+    listener.close();
+
+    Assert.assertEquals(ImmutableList.of("before"), Files.readAllLines(logFile));
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GcloudConfigDirectoryTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final Map<String, String> environment = new HashMap<>();
+  private Path userHome;
+  private Path configDirectory;
+
+  @Before
+  public void setUp() throws IOException {
+    userHome = tempFolder.newFolder("home").toPath();
+    configDirectory = userHome.resolve(".config").resolve("gcloud");
+    Files.createDirectories(configDirectory.resolve("configurations"));
+  }
+
+  private void writeConfiguration(String name, String content) throws IOException {
+    Files.write(
+        configDirectory.resolve("configurations").resolve("config_" + name),
+        content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private GcloudConfigDirectory newReader() {
+    return new GcloudConfigDirectory(environment, userHome, false);
+  }
+
+  @Test
+  public void testRead_defaultConfiguration() throws IOException {
+    writeConfiguration(
+        "default",
+        "[core]\naccount = user@example.com\nproject = my-project\n\n[compute]\nregion = us-east1\n");
+
+    GcloudConfig config = newReader().read();
+
+    Assert.assertEquals("my-project", config.getProject());
+    Assert.assertEquals("user@example.com", config.getAccount());
+    Assert.assertEquals("us-east1", config.getRegion());
+    Assert.assertNull(config.getZone());
+  }
+
+  @Test
+  public void testRead_activeConfigFile() throws IOException {
+    writeConfiguration("default", "[core]\nproject = default-project\n");
+    writeConfiguration("staging", "[core]\nproject = staging-project\n");
+    Files.write(
+        configDirectory.resolve("active_config"), "staging\n".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertEquals("staging-project", newReader().read().getProject());
+  }
+
+  @Test
+  public void testRead_activeConfigEnvironment() throws IOException {
+    writeConfiguration("staging", "[core]\nproject = staging-project\n");
+    writeConfiguration("prod", "[core]\nproject = prod-project\n");
+    Files.write(
+        configDirectory.resolve("active_config"), "staging".getBytes(StandardCharsets.UTF_8));
+    environment.put("CLOUDSDK_ACTIVE_CONFIG_NAME", "prod");
+
+    Assert.assertEquals("prod-project", newReader().read().getProject());
+  }
+
+  @Test
+  public void testRead_cloudSdkConfigEnvironment() throws IOException {
+    Path otherDirectory = tempFolder.newFolder("other").toPath();
+    Files.createDirectories(otherDirectory.resolve("configurations"));
+    Files.write(
+        otherDirectory.resolve("configurations").resolve("config_default"),
+        "[core]\nproject = other-project\n".getBytes(StandardCharsets.UTF_8));
+    environment.put("CLOUDSDK_CONFIG", otherDirectory.toString());
+
+    Assert.assertEquals("other-project", newReader().read().getProject());
+  }
+
+  @Test
+  public void testRead_environmentOverrides() throws IOException {
+    writeConfiguration("default", "[core]\nproject = my-project\n");
+    environment.put("CLOUDSDK_CORE_PROJECT", "env-project");
+    environment.put("CLOUDSDK_COMPUTE_ZONE", "europe-west1-b");
+    environment.put("CLOUDSDK_PYTHON", "/usr/bin/python3");
+
+    GcloudConfig config = newReader().read();
+
+    Assert.assertEquals("env-project", config.getProject());
+    Assert.assertEquals("europe-west1-b", config.getZone());
+    Assert.assertEquals(2, config.getProperties().size());
+  }
+
+  @Test
+  public void testRead_missingConfiguration() throws IOException {
+    Assert.assertTrue(newReader().read().getProperties().isEmpty());
+  }
+
+  @Test
+  public void testRead_missingConfigurationEnvironmentOnly() throws IOException {
+    environment.put("CLOUDSDK_CORE_PROJECT", "env-project");
+
+    GcloudConfig config = newReader().read();
+
+    Assert.assertEquals("env-project", config.getProject());
+    Assert.assertEquals(1, config.getProperties().size());
+  }
+
+  @Test
+  public void testRead_noConfigDirectoryEnvironmentOnly() throws IOException {
+    environment.put("CLOUDSDK_CORE_PROJECT", "env-project");
+
+    GcloudConfig config = new GcloudConfigDirectory(environment, userHome, true).read();
+
+    Assert.assertEquals("env-project", config.getProject());
+  }
+
+  @Test
+  public void testGetConfigDirectory_windows() {
+    environment.put("APPDATA", "C:\\Users\\me\\AppData\\Roaming");
+
+    Assert.assertEquals(
+        Paths.get("C:\\Users\\me\\AppData\\Roaming", "gcloud"),
+        new GcloudConfigDirectory(environment, userHome, true).getConfigDirectory());
+    Assert.assertNull(
+        new GcloudConfigDirectory(ImmutableMap.of(), userHome, true).getConfigDirectory());
+  }
+
+  @Test
+  public void testParseProperties() {
+    Map<String, String> properties =
+        GcloudConfigDirectory.parseProperties(
+            Arrays.asList(
+                "# comment",
+                "ignored = no section",
+                "[core]",
+                "  project=my-project  ",
+                "; another comment",
+                "account =",
+                "[app]",
+                "cloud_build_timeout = 600"));
+
+    Assert.assertEquals(
+        ImmutableMap.of("core/project", "my-project", "app/cloud_build_timeout", "600"),
+        properties);
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import com.google.common.base.Ticker;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LoggingProgressListenerTest {
+
+  private static final long MB = 1024 * 1024;
+
+  @Mock private Log log;
+
+  private final FakeTicker ticker = new FakeTicker();
+  private LoggingProgressListener listener;
+
+  @Before
+  public void setUp() {
+    listener = new LoggingProgressListener(log, ticker, 2000);
+  }
+
+  @Test
+  public void testUpdate_throttledDownloadProgress() {
+    ProgressListener download = listener.newChild(100);
+    download.start("Downloading sdk.tar.gz", 100 * MB);
+    verify(log).info("Downloading sdk.tar.gz");
+
+    ticker.advance(1000);
+    download.update(10 * MB);
+    ticker.advance(1000);
+    download.update(10 * MB);
+    ticker.advance(500);
+    download.update(5 * MB);
+
+    verify(log).info("Downloading sdk.tar.gz: 20.0 MB / 100.0 MB (20%), 10.0 MB/s, ETA 8.0s");
+    verify(log, times(2)).info(ArgumentMatchers.anyString());
+  }
+
+  @Test
+  public void testUpdate_unknownTotal() {
+    listener.start("Extracting archive: sdk.tar.gz", ProgressListener.UNKNOWN);
+    ticker.advance(4000);
+    listener.update(400);
+
+    verify(log).info("Extracting archive: sdk.tar.gz: 400, 100/s");
+  }
+
+  @Test
+  public void testDone_recordsTasksOfChildren() {
+    ProgressListener download = listener.newChild(1);
+    download.start("Downloading sdk.tar.gz", 4 * MB);
+    ticker.advance(2000);
+    download.update(4 * MB);
+    download.done();
+    ProgressListener extract = listener.newChild(1);
+    extract.start("Extracting archive: sdk.tar.gz", ProgressListener.UNKNOWN);
+    ticker.advance(500);
+    extract.update(10);
+    extract.done();
+
+    verify(log).info("Downloading sdk.tar.gz: done in 2.0s (2.0 MB/s)");
+    verify(log).info("Extracting archive: sdk.tar.gz: done in 0.5s (20/s)");
+    List<LoggingProgressListener.Task> tasks = listener.getFinishedTasks();
+    Assert.assertEquals(2, tasks.size());
+    Assert.assertEquals("Downloading sdk.tar.gz", tasks.get(0).getName());
+    Assert.assertEquals(2000, tasks.get(0).getMillis());
+    Assert.assertEquals(4 * MB, tasks.get(0).getUnits());
+    Assert.assertTrue(tasks.get(0).isBytes());
+    Assert.assertFalse(tasks.get(1).isBytes());
+  }
+
+  @Test
+  public void testDone_withoutStart() {
+    listener.done();
+
+    Assert.assertTrue(listener.getFinishedTasks().isEmpty());
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long millis) {
+      nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import com.google.common.base.Ticker;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProcessOutputFilterTest {
+
+  @Mock private Log log;
+
+  private final FakeTicker ticker = new FakeTicker();
+
+  @Test
+  public void testOnOutputLine_default() {
+    ProcessOutputFilter filter = new ProcessOutputFilter(log);
+
+    filter.onOutputLine("Beginning deployment");
+    filter.finish(null);
+
+    Mockito.verify(log).info("GCLOUD: Beginning deployment");
+    Mockito.verifyNoMoreInteractions(log);
+  }
+
+  @Test
+  public void testOnOutputLine_levels() {
+    ProcessOutputFilter filter = new ProcessOutputFilter(log, null, null, false, 0, ticker);
+
+    filter.onOutputLine("WARNING: Could not find a default project");
+    filter.onOutputLine("ERROR: (gcloud.app.deploy) Permission denied");
+    filter.onOutputLine("SEVERE: Unable to start");
+    filter.onOutputLine("[WARN] deprecated option");
+    filter.onOutputLine("Errors are reported above");
+
+    Mockito.verify(log).warn("GCLOUD: WARNING: Could not find a default project");
+    Mockito.verify(log).error("GCLOUD: ERROR: (gcloud.app.deploy) Permission denied");
+    Mockito.verify(log).error("GCLOUD: SEVERE: Unable to start");
+    Mockito.verify(log).warn("GCLOUD: [WARN] deprecated option");
+    Mockito.verifyNoMoreInteractions(log);
+  }
+
+  @Test
+  public void testOnOutputLine_includeAndExclude() {
+    ProcessOutputFilter filter =
+        new ProcessOutputFilter(
+            log, Pattern.compile("Upload|Deployed"), Pattern.compile("Uploading"), true, 0, ticker);
+
+    filter.onOutputLine("Uploading 1 file");
+    filter.onOutputLine("Upload complete");
+    filter.onOutputLine("Updating service");
+    filter.onOutputLine("Deployed service [default]");
+    filter.finish(null);
+
+    Mockito.verify(log).info("GCLOUD: Upload complete");
+    Mockito.verify(log).info("GCLOUD: Deployed service [default]");
+    Mockito.verify(log).info("GCLOUD: 4 line(s) of output, 0 warning(s), 0 error(s), 2 not shown");
+    Mockito.verifyNoMoreInteractions(log);
+  }
+
+  @Test
+  public void testOnOutputLine_rateLimited() {
+    ProcessOutputFilter filter = new ProcessOutputFilter(log, null, null, true, 2, ticker);
+
+    for (int i = 0; i < 5; i++) {
+      filter.onOutputLine("line " + i);
+    }
+    ticker.advance(1, TimeUnit.SECONDS);
+    filter.onOutputLine("line 5");
+    filter.onOutputLine("WARNING: never limited");
+    filter.finish(null);
+
+    Mockito.verify(log).info("GCLOUD: line 0");
+    Mockito.verify(log).info("GCLOUD: line 1");
+    Mockito.verify(log).info("GCLOUD: ... 3 line(s) suppressed by the rate limit");
+    Mockito.verify(log).info("GCLOUD: line 5");
+    Mockito.verify(log).warn("GCLOUD: WARNING: never limited");
+    Mockito.verify(log).info("GCLOUD: 7 line(s) of output, 1 warning(s), 0 error(s), 3 not shown");
+    Mockito.verifyNoMoreInteractions(log);
+  }
+
+  @Test
+  public void testFinish_summaryOnly() {
+    ProcessOutputFilter filter = new ProcessOutputFilter(log, null, null, false, 0, ticker);
+
+    filter.onOutputLine("Uploading 1 file");
+    filter.finish(Paths.get("gcloud.log"));
+
+    Mockito.verify(log)
+        .info(
+            "GCLOUD: 1 line(s) of output, 0 warning(s), 0 error(s), 1 not shown; full output in "
+                + Paths.get("gcloud.log"));
+    Mockito.verifyNoMoreInteractions(log);
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long time, TimeUnit unit) {
+      nanos += unit.toNanos(time);
+    }
+  }
+}
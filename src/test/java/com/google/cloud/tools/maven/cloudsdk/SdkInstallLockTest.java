@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.cloudsdk;
+
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SdkInstallLockTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private Log log;
+
+  private Path sdkHome;
+
+  @Before
+  public void setUp() {
+    sdkHome = tempFolder.getRoot().toPath().resolve("managed-cloud-sdk/LATEST/google-cloud-sdk");
+  }
+
+  @Test
+  public void testAcquire_createsLockFile() throws Exception {
+    try (SdkInstallLock lock = SdkInstallLock.acquire(sdkHome, log)) {
+      Assert.assertTrue(Files.exists(SdkInstallLock.getLockFile(sdkHome)));
+    }
+    Mockito.verifyZeroInteractions(log);
+  }
+
+  @Test
+  public void testAcquire_waitsForOtherThread() throws Exception {
+    CountDownLatch acquired = new CountDownLatch(1);
+    Thread waiter;
+    try (SdkInstallLock lock = SdkInstallLock.acquire(sdkHome, log)) {
+      waiter =
+          new Thread(
+              () -> {
+                try (SdkInstallLock other = SdkInstallLock.acquire(sdkHome, log)) {
+                  acquired.countDown();
+                } catch (Exception ex) {
+                  throw new RuntimeException(ex);
+                }
+              });
+      waiter.start();
+      Assert.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+    }
+    Assert.assertTrue(acquired.await(10, TimeUnit.SECONDS));
+    waiter.join();
+  }
+
+  @Test
+  public void testAcquire_releasesFileLock() throws Exception {
+    SdkInstallLock.acquire(sdkHome, log).close();
+
+    // the file lock is free again once closed
+    try (FileChannel channel =
+        FileChannel.open(SdkInstallLock.getLockFile(sdkHome), StandardOpenOption.WRITE)) {
+      FileLock fileLock = channel.tryLock();
+      Assert.assertNotNull(fileLock);
+      fileLock.release();
+    }
+  }
+}
@@ -27,6 +27,7 @@ import com.google.cloud.tools.maven.deploy.AppDeployer.ConfigBuilder;
 import com.google.cloud.tools.maven.stage.Stager;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -87,6 +88,54 @@ public class AppDeployerTest {
     Mockito.verify(appEngineDeployment).deploy(deployConfiguration);
   }
 
+  @Test
+  public void testDeploy_skipUnchanged()
+      throws IOException, MojoExecutionException, AppEngineException {
+    DeployConfiguration config =
+        DeployConfiguration.builder(ImmutableList.of(stagingDirectory)).version("v1").build();
+    Mockito.when(configBuilder.buildDeployConfiguration(ImmutableList.of(stagingDirectory)))
+        .thenReturn(config);
+    Mockito.when(deployMojo.isSkipUnchanged()).thenReturn(true);
+    Mockito.when(deployMojo.getFingerprintFile())
+        .thenReturn(tempFolder.getRoot().toPath().resolve("appengine-deploy.fingerprint"));
+    Files.write(
+        stagingDirectory.resolve("app.yaml"), "runtime: java".getBytes(StandardCharsets.UTF_8));
+
+    testDeployer.deploy();
+    testDeployer.deploy();
+    Mockito.verify(appEngineDeployment, Mockito.times(1)).deploy(config);
+
+    Files.write(
+        stagingDirectory.resolve("app.yaml"), "runtime: java11".getBytes(StandardCharsets.UTF_8));
+    testDeployer.deploy();
+    Mockito.verify(appEngineDeployment, Mockito.times(2)).deploy(config);
+  }
+
+  @Test
+  public void testDeployPrepared_skipUnchanged()
+      throws IOException, MojoExecutionException, AppEngineException {
+    DeployConfiguration config =
+        DeployConfiguration.builder(ImmutableList.of(stagingDirectory)).version("v1").build();
+    Mockito.when(deployMojo.isSkipUnchanged()).thenReturn(true);
+    Mockito.when(deployMojo.getFingerprintFile())
+        .thenReturn(tempFolder.getRoot().toPath().resolve("appengine-deploy.fingerprint"));
+    Files.write(
+        stagingDirectory.resolve("app.yaml"), "runtime: java".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertTrue(testDeployer.deployPrepared(config));
+    Assert.assertFalse(testDeployer.deployPrepared(config));
+    Mockito.verify(appEngineDeployment, Mockito.times(1)).deploy(config);
+  }
+
+  @Test
+  public void testPrepareDeploy() throws MojoExecutionException, AppEngineException {
+    Mockito.when(configBuilder.buildDeployConfiguration(ImmutableList.of(stagingDirectory)))
+        .thenReturn(deployConfiguration);
+    Assert.assertSame(deployConfiguration, testDeployer.prepareDeploy());
+    Mockito.verify(stager).stage();
+    Mockito.verifyNoMoreInteractions(appEngineDeployment);
+  }
+
   private List<Path> createStagedYamls(String... names) throws IOException {
     List<Path> createdFiles = new ArrayList<>();
     for (String name : names) {
@@ -153,7 +202,8 @@ public class AppDeployerTest {
   @Test
   public void testDeployCron() throws MojoExecutionException, AppEngineException {
     testDeployer.deployCron();
-    Mockito.verify(stager).stage();
+    Mockito.verify(stager).stageConfigs();
+    Mockito.verify(stager, Mockito.never()).stage();
     Mockito.verify(configBuilder).buildDeployProjectConfigurationConfiguration(appengineDirectory);
     Mockito.verify(appEngineDeployment).deployCron(deployProjectConfigurationConfiguration);
   }
@@ -161,7 +211,8 @@ public class AppDeployerTest {
   @Test
   public void testDeployDos() throws MojoExecutionException, AppEngineException {
     testDeployer.deployDos();
-    Mockito.verify(stager).stage();
+    Mockito.verify(stager).stageConfigs();
+    Mockito.verify(stager, Mockito.never()).stage();
     Mockito.verify(configBuilder).buildDeployProjectConfigurationConfiguration(appengineDirectory);
     Mockito.verify(appEngineDeployment).deployDos(deployProjectConfigurationConfiguration);
   }
@@ -169,7 +220,8 @@ public class AppDeployerTest {
   @Test
   public void testDeployDispatch() throws MojoExecutionException, AppEngineException {
     testDeployer.deployDispatch();
-    Mockito.verify(stager).stage();
+    Mockito.verify(stager).stageConfigs();
+    Mockito.verify(stager, Mockito.never()).stage();
     Mockito.verify(configBuilder).buildDeployProjectConfigurationConfiguration(appengineDirectory);
     Mockito.verify(appEngineDeployment).deployDispatch(deployProjectConfigurationConfiguration);
   }
@@ -177,7 +229,8 @@ public class AppDeployerTest {
   @Test
   public void testDeployIndex() throws MojoExecutionException, AppEngineException {
     testDeployer.deployIndex();
-    Mockito.verify(stager).stage();
+    Mockito.verify(stager).stageConfigs();
+    Mockito.verify(stager, Mockito.never()).stage();
     Mockito.verify(configBuilder).buildDeployProjectConfigurationConfiguration(appengineDirectory);
     Mockito.verify(appEngineDeployment).deployIndex(deployProjectConfigurationConfiguration);
   }
@@ -185,11 +238,96 @@ public class AppDeployerTest {
   @Test
   public void testDeployQueue() throws MojoExecutionException, AppEngineException {
     testDeployer.deployQueue();
-    Mockito.verify(stager).stage();
+    Mockito.verify(stager).stageConfigs();
+    Mockito.verify(stager, Mockito.never()).stage();
     Mockito.verify(configBuilder).buildDeployProjectConfigurationConfiguration(appengineDirectory);
     Mockito.verify(appEngineDeployment).deployQueue(deployProjectConfigurationConfiguration);
   }
 
+  @Test
+  public void testDeployConfigs_allFound()
+      throws MojoExecutionException, AppEngineException, IOException {
+    List<Path> files = createStagedYamls("cron", "queue");
+    Mockito.when(configBuilder.buildDeployConfigsConfiguration(files))
+        .thenReturn(deployConfiguration);
+
+    testDeployer.deployConfigs(null);
+
+    Mockito.verify(stager).stageConfigs();
+    Mockito.verify(appEngineDeployment).deploy(deployConfiguration);
+    Mockito.verify(mockLog)
+        .info(
+            Mockito.matches(
+                "Deployed cron.yaml, queue.yaml in [0-9.]+s with 1 gcloud invocation instead of 2"));
+  }
+
+  @Test
+  public void testDeployConfigs_requested()
+      throws MojoExecutionException, AppEngineException, IOException {
+    List<Path> files = createStagedYamls("dispatch", "queue", "cron");
+    Mockito.when(configBuilder.buildDeployConfigsConfiguration(files.subList(1, 3)))
+        .thenReturn(deployConfiguration);
+
+    testDeployer.deployConfigs(ImmutableList.of("queue", "cron"));
+
+    Mockito.verify(appEngineDeployment).deploy(deployConfiguration);
+  }
+
+  @Test
+  public void testDeployConfigs_requestedMissing() throws IOException {
+    createStagedYamls("cron");
+    try {
+      testDeployer.deployConfigs(ImmutableList.of("cron", "queue"));
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals(
+          "Failed to deploy configs: could not find queue.yaml in " + appengineDirectory,
+          ex.getMessage());
+    }
+    Mockito.verifyNoMoreInteractions(appEngineDeployment);
+  }
+
+  @Test
+  public void testDeployConfigs_unknownType() {
+    try {
+      testDeployer.deployConfigs(ImmutableList.of("cron", "app"));
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals(
+          "Unknown configuration type 'app', expected one of [cron, dispatch, dos, index, queue]",
+          ex.getMessage());
+    }
+    Mockito.verifyNoMoreInteractions(stager);
+  }
+
+  @Test
+  public void testDeployConfigs_noneFound() throws MojoExecutionException {
+    testDeployer.deployConfigs(ImmutableList.of());
+
+    Mockito.verify(stager).stageConfigs();
+    Mockito.verifyNoMoreInteractions(appEngineDeployment);
+  }
+
+  @Test
+  public void testBuildDeployConfigsConfiguration() {
+    AbstractDeployMojo deployMojo = Mockito.mock(AbstractDeployMojo.class);
+    Mockito.when(deployMojo.getProjectId()).thenReturn("testProjectId");
+    Mockito.when(deployMojo.getServer()).thenReturn("testServer");
+    ConfigProcessor configProcessor = Mockito.mock(ConfigProcessor.class);
+    Mockito.when(configProcessor.processProjectId("testProjectId"))
+        .thenReturn("processedTestProjectId");
+
+    List<Path> yamls = ImmutableList.of(Paths.get("cron.yaml"), Paths.get("queue.yaml"));
+    DeployConfiguration deployConfig =
+        new ConfigBuilder(deployMojo, configProcessor).buildDeployConfigsConfiguration(yamls);
+
+    Assert.assertEquals(yamls, deployConfig.getDeployables());
+    Assert.assertEquals("processedTestProjectId", deployConfig.getProjectId());
+    Assert.assertEquals("testServer", deployConfig.getServer());
+    Assert.assertNull(deployConfig.getVersion());
+    Assert.assertNull(deployConfig.getPromote());
+  }
+
   @Test
   public void testBuildDeployConfiguration() {
     AbstractDeployMojo deployMojo = Mockito.mock(AbstractDeployMojo.class);
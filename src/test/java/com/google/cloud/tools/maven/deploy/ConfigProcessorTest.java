@@ -19,10 +19,11 @@ package com.google.cloud.tools.maven.deploy;
 import static org.junit.Assert.fail;
 
 import com.google.cloud.tools.maven.cloudsdk.ConfigReader;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -35,11 +36,23 @@ public class ConfigProcessorTest {
 
   @Mock private ConfigReader configReader;
 
-  @InjectMocks private ConfigProcessor testProcessor;
+  private final AtomicInteger configReaderRequests = new AtomicInteger();
+  private ConfigProcessor testProcessor;
+
+  @Before
+  public void setUp() {
+    testProcessor =
+        new ConfigProcessor(
+            () -> {
+              configReaderRequests.incrementAndGet();
+              return configReader;
+            });
+  }
 
   @Test
   public void testProcessProjectId_fromBuildConfig() {
     Assert.assertEquals(PROJECT_BUILD, testProcessor.processProjectId(PROJECT_BUILD));
+    Assert.assertEquals(0, configReaderRequests.get());
   }
 
   @Test
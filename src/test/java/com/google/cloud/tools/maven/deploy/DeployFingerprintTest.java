@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DeployFingerprintTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path stagingDirectory;
+  private Path cronYaml;
+
+  @Before
+  public void setUp() throws IOException {
+    stagingDirectory = tempFolder.newFolder("staging").toPath();
+    Files.write(
+        stagingDirectory.resolve("app.yaml"), "runtime: java".getBytes(StandardCharsets.UTF_8));
+    cronYaml = tempFolder.newFile("cron.yaml").toPath();
+  }
+
+  private DeployConfiguration.Builder configBuilder() {
+    return DeployConfiguration.builder(ImmutableList.of(stagingDirectory, cronYaml))
+        .projectId("project")
+        .version("v1");
+  }
+
+  @Test
+  public void testCompute_stable() throws IOException {
+    Assert.assertEquals(
+        DeployFingerprint.compute(configBuilder().build()),
+        DeployFingerprint.compute(configBuilder().build()));
+  }
+
+  @Test
+  public void testCompute_stagedContentChanged() throws IOException {
+    String before = DeployFingerprint.compute(configBuilder().build());
+    Files.write(
+        stagingDirectory.resolve("app.yaml"), "runtime: java11".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertNotEquals(before, DeployFingerprint.compute(configBuilder().build()));
+  }
+
+  @Test
+  public void testCompute_configurationFileChanged() throws IOException {
+    String before = DeployFingerprint.compute(configBuilder().build());
+    Files.write(cronYaml, "cron:".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertNotEquals(before, DeployFingerprint.compute(configBuilder().build()));
+  }
+
+  @Test
+  public void testCompute_deployOptionsChanged() throws IOException {
+    String before = DeployFingerprint.compute(configBuilder().build());
+
+    Assert.assertNotEquals(
+        before, DeployFingerprint.compute(configBuilder().version("v2").build()));
+    Assert.assertNotEquals(
+        before, DeployFingerprint.compute(configBuilder().promote(false).build()));
+    Assert.assertNotEquals(
+        before, DeployFingerprint.compute(configBuilder().projectId("other").build()));
+  }
+
+  @Test
+  public void testMatches() throws IOException {
+    DeployFingerprint deployFingerprint =
+        new DeployFingerprint(tempFolder.getRoot().toPath().resolve("target/fingerprint"));
+    Assert.assertFalse(deployFingerprint.matches("abc"));
+
+    deployFingerprint.write("abc");
+
+    Assert.assertTrue(deployFingerprint.matches("abc"));
+    Assert.assertFalse(deployFingerprint.matches("def"));
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
+import com.google.cloud.tools.maven.cloudsdk.CloudSdkAppEngineFactory;
+import com.google.common.collect.ImmutableList;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DeployServicesMojoTest {
+
+  @Mock private Deployer.Factory factory;
+  @Mock private Deployer deployer;
+  @Mock private CloudSdkAppEngineFactory appEngineFactory;
+  @Mock private DeployConfiguration deployConfiguration;
+  @Mock private MavenSession mavenSession;
+  @Mock private MavenProject mavenProject;
+
+  @InjectMocks private DeployServicesMojo testMojo;
+
+  @Before
+  public void setUp() {
+    Mockito.when(mavenProject.getId()).thenReturn("com.example:service:war:1.0");
+    Mockito.when(mavenSession.getGoals()).thenReturn(ImmutableList.of("appengine:deployServices"));
+    Mockito.when(mavenSession.getProjects()).thenReturn(ImmutableList.of(mavenProject));
+  }
+
+  @Test
+  public void testExecute_smokeTest() throws MojoExecutionException {
+    Mockito.when(factory.newDeployer(testMojo)).thenReturn(deployer);
+    Mockito.when(deployer.prepareDeploy()).thenReturn(deployConfiguration);
+    Mockito.when(deployer.deployPrepared(deployConfiguration)).thenReturn(true);
+    Mockito.when(mavenProject.getArtifactId()).thenReturn("service");
+
+    testMojo.execute();
+
+    // deployed through the deployer, which skips unchanged deployments and times them
+    Mockito.verify(deployer).deployPrepared(deployConfiguration);
+    Mockito.verifyZeroInteractions(appEngineFactory);
+  }
+
+  @Test
+  public void testExecute_skipTest() throws MojoExecutionException {
+    testMojo.setSkip(true);
+    testMojo.execute();
+    Mockito.verifyNoMoreInteractions(deployer, appEngineFactory);
+  }
+}
@@ -5,7 +5,6 @@ import static org.mockito.Mockito.times;
 import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
 import com.google.cloud.tools.appengine.configuration.DeployProjectConfigurationConfiguration;
 import com.google.cloud.tools.appengine.operations.Deployment;
-import com.google.cloud.tools.maven.cloudsdk.CloudSdkAppEngineFactory;
 import com.google.cloud.tools.maven.deploy.AppDeployer.ConfigBuilder;
 import com.google.cloud.tools.maven.stage.AppEngineWebXmlStager;
 import com.google.cloud.tools.maven.stage.AppYamlStager;
@@ -36,7 +35,6 @@ public class DeployerTest {
   @Mock private AbstractDeployMojo deployMojo;
 
   private Path stagingDirectory;
-  @Mock private CloudSdkAppEngineFactory appEngineFactory;
   @Mock private Deployment appEngineDeployment;
   @Mock private Path appengineDirectory;
   @Mock private DeployConfiguration deployConfiguration;
@@ -49,7 +47,6 @@ public class DeployerTest {
     stagingDirectory = tempFolder.newFolder("staging").toPath();
 
     Mockito.when(deployMojo.getStagingDirectory()).thenReturn(stagingDirectory);
-    Mockito.when(deployMojo.getAppEngineFactory()).thenReturn(appEngineFactory);
   }
 
   @Test
@@ -63,6 +60,8 @@ public class DeployerTest {
         deployMojo.getStagingDirectory().resolve("WEB-INF").resolve("appengine-generated"),
         deployer.appengineDirectory);
     Assert.assertEquals(AppEngineWebXmlStager.class, deployer.stager.getClass());
+    // the gcloud config, and so the Cloud SDK, is only needed once the deployment is configured
+    Mockito.verify(deployMojo, times(0)).getAppEngineFactory();
   }
 
   @Test
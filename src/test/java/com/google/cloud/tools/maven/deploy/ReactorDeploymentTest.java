@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.deploy;
+
+import com.google.cloud.tools.appengine.configuration.DeployConfiguration;
+import com.google.cloud.tools.maven.deploy.ReactorDeployment.Service;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReactorDeploymentTest {
+
+  @Mock private Log log;
+  @Mock private Deployer deployer;
+  @Mock private DeployConfiguration first;
+  @Mock private DeployConfiguration second;
+  @Mock private MavenProject firstProject;
+  @Mock private MavenProject secondProject;
+
+  @Test
+  public void testAddProject_returnsServicesAfterLastProject() {
+    Mockito.when(firstProject.getId()).thenReturn("first");
+    Mockito.when(secondProject.getId()).thenReturn("second");
+    ReactorDeployment reactorDeployment =
+        new ReactorDeployment(ImmutableList.of(firstProject, secondProject));
+    Service service = new Service("first", deployer, first);
+
+    Assert.assertNull(reactorDeployment.addProject(firstProject, service));
+    List<Service> services = reactorDeployment.addProject(secondProject, null);
+
+    Assert.assertEquals(ImmutableList.of(service), services);
+    Assert.assertNull(reactorDeployment.checkDeployed());
+  }
+
+  @Test
+  public void testCheckDeployed_pendingProjects() {
+    Mockito.when(firstProject.getId()).thenReturn("first");
+    Mockito.when(secondProject.getId()).thenReturn("second");
+    ReactorDeployment reactorDeployment =
+        new ReactorDeployment(ImmutableList.of(firstProject, secondProject));
+
+    Assert.assertNull(reactorDeployment.checkDeployed());
+    reactorDeployment.addProject(firstProject, new Service("first", deployer, first));
+
+    MojoExecutionException failure = reactorDeployment.checkDeployed();
+    Assert.assertEquals(
+        "Service(s) first were staged but never deployed, because the build ended before"
+            + " project(s) second ran appengine:deployServices",
+        failure.getMessage());
+  }
+
+  @Test
+  public void testGetDeployingProjects_requestedOnCommandLine() {
+    MavenSession session = Mockito.mock(MavenSession.class);
+    Mockito.when(session.getGoals()).thenReturn(ImmutableList.of("appengine:deployServices"));
+    Mockito.when(session.getProjects()).thenReturn(ImmutableList.of(firstProject, secondProject));
+
+    Assert.assertEquals(
+        ImmutableList.of(firstProject, secondProject),
+        ReactorDeployment.getDeployingProjects(session));
+  }
+
+  @Test
+  public void testGetDeployingProjects_boundInBuild() {
+    Plugin plugin = new Plugin();
+    plugin.setGroupId("com.google.cloud.tools");
+    plugin.setArtifactId("appengine-maven-plugin");
+    PluginExecution execution = new PluginExecution();
+    execution.addGoal("deployServices");
+    plugin.addExecution(execution);
+    Mockito.when(firstProject.getBuildPlugins()).thenReturn(ImmutableList.of(plugin));
+    Mockito.when(secondProject.getBuildPlugins()).thenReturn(ImmutableList.of());
+    MavenSession session = Mockito.mock(MavenSession.class);
+    Mockito.when(session.getGoals()).thenReturn(ImmutableList.of("deploy"));
+    Mockito.when(session.getProjects()).thenReturn(ImmutableList.of(firstProject, secondProject));
+
+    Assert.assertEquals(
+        ImmutableList.of(firstProject), ReactorDeployment.getDeployingProjects(session));
+  }
+
+  @Test
+  public void testDeployServices() throws MojoExecutionException {
+    ReactorDeployment.deployServices(
+        ImmutableList.of(
+            new Service("first", deployer, first), new Service("second", deployer, second)),
+        4,
+        true,
+        log);
+
+    Mockito.verify(deployer).deployPrepared(first);
+    Mockito.verify(deployer).deployPrepared(second);
+  }
+
+  @Test
+  public void testDeployServices_unchanged() throws MojoExecutionException {
+    Mockito.when(deployer.deployPrepared(first)).thenReturn(false);
+
+    ReactorDeployment.deployServices(
+        ImmutableList.of(new Service("first", deployer, first)), 4, true, log);
+
+    Mockito.verify(log, Mockito.never()).info(Mockito.startsWith("Deployed service"));
+  }
+
+  @Test
+  public void testDeployServices_failFast() throws MojoExecutionException {
+    Mockito.doThrow(new MojoExecutionException("failed")).when(deployer).deployPrepared(first);
+
+    try {
+      ReactorDeployment.deployServices(
+          ImmutableList.of(
+              new Service("first", deployer, first), new Service("second", deployer, second)),
+          1,
+          true,
+          log);
+      Assert.fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals("Failed to deploy service(s): first", ex.getMessage());
+    }
+    Mockito.verify(deployer, Mockito.never()).deployPrepared(second);
+  }
+
+  @Test
+  public void testDeployServices_continueOnFailure() throws MojoExecutionException {
+    Mockito.doThrow(new MojoExecutionException("failed")).when(deployer).deployPrepared(first);
+
+    try {
+      ReactorDeployment.deployServices(
+          ImmutableList.of(
+              new Service("first", deployer, first), new Service("second", deployer, second)),
+          1,
+          false,
+          log);
+      Assert.fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals("Failed to deploy service(s): first", ex.getMessage());
+    }
+    Mockito.verify(deployer).deployPrepared(second);
+  }
+
+  @Test
+  public void testDeployServices_noServices() throws MojoExecutionException {
+    ReactorDeployment.deployServices(ImmutableList.of(), 4, true, log);
+
+    Mockito.verify(log).info("No App Engine services to deploy.");
+  }
+}
@@ -18,15 +18,22 @@ package com.google.cloud.tools.maven.run;
 
 import com.google.common.collect.ImmutableList;
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Properties;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Build;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -47,9 +54,20 @@ public class AbstractRunMojoTest {
       servicesField.setAccessible(true);
       servicesField.set(this, services);
     }
+
+    public void injectAllocatePort(boolean allocatePort)
+        throws NoSuchFieldException, IllegalAccessException {
+      Field allocatePortField = AbstractRunMojo.class.getDeclaredField("allocatePort");
+      allocatePortField.setAccessible(true);
+      allocatePortField.set(this, allocatePort);
+    }
   }
 
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
   @Mock private MavenProject mavenProject;
+  @Mock private MavenSession mavenSession;
+  @Mock private Log log;
 
   @InjectMocks private final AbstractRunMojoImpl testMojo = new AbstractRunMojoImpl();
 
@@ -81,4 +99,34 @@ public class AbstractRunMojoTest {
     Assert.assertEquals(
         ImmutableList.of(Paths.get("some-service-location")), testMojo.getServices());
   }
+
+  @Test
+  public void testAllocatePortIfRequested()
+      throws NoSuchFieldException, IllegalAccessException, MojoExecutionException, IOException {
+    Path buildDirectory = tempFolder.getRoot().toPath();
+    Mockito.when(mavenProject.getBuild().getDirectory()).thenReturn(buildDirectory.toString());
+    Properties properties = new Properties();
+    Mockito.when(mavenProject.getProperties()).thenReturn(properties);
+    testMojo.injectServices(ImmutableList.of(new File("service-one"), new File("service-two")));
+    testMojo.injectAllocatePort(true);
+    testMojo.setLog(log);
+
+    testMojo.allocatePortIfRequested();
+
+    Integer port = testMojo.getPort();
+    Assert.assertNotNull(port);
+    Assert.assertEquals(port.toString(), properties.getProperty("app.devserver.allocatedPort"));
+    Assert.assertEquals(port, PortAllocator.readPortFile(mavenProject));
+    // a second call keeps the allocated port
+    testMojo.allocatePortIfRequested();
+    Assert.assertEquals(port, testMojo.getPort());
+  }
+
+  @Test
+  public void testAllocatePortIfRequested_notRequested() throws MojoExecutionException {
+    testMojo.allocatePortIfRequested();
+
+    Assert.assertNull(testMojo.getPort());
+    Mockito.verify(mavenProject, Mockito.never()).getProperties();
+  }
 }
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.run;
+
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.execution.BuildSuccess;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Build;
+import org.apache.maven.project.MavenProject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DevServerPoolTest {
+
+  @Mock private MavenSession session;
+
+  private final MavenProject first = newProject("first");
+  private final MavenProject second = newProject("second");
+  private final DefaultMavenExecutionResult result = new DefaultMavenExecutionResult();
+  private final AtomicInteger stops = new AtomicInteger();
+  private DevServerPool pool;
+
+  private static MavenProject newProject(String artifactId) {
+    MavenProject project = new MavenProject();
+    project.setGroupId("com.example");
+    project.setArtifactId(artifactId);
+    project.setVersion("1.0");
+    return project;
+  }
+
+  @Before
+  public void setUp() {
+    pool = new DevServerPool(Paths.get("/pool"));
+  }
+
+  private void setUpSession() {
+    Mockito.when(session.getGoals()).thenReturn(ImmutableList.of("appengine:start"));
+    Mockito.when(session.getProjects()).thenReturn(ImmutableList.of(first, second));
+    Mockito.when(session.getResult()).thenReturn(result);
+  }
+
+  @Test
+  public void testForSession_sharedPerBuild() {
+    MavenProject topLevelProject = new MavenProject();
+    Build build = new Build();
+    build.setDirectory("/project/target");
+    topLevelProject.setBuild(build);
+    MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    Mockito.when(session.getTopLevelProject()).thenReturn(topLevelProject);
+    Mockito.when(session.getRequest()).thenReturn(request);
+    MavenSession moduleSession = Mockito.mock(MavenSession.class);
+    Mockito.when(moduleSession.getRequest()).thenReturn(request);
+
+    DevServerPool sessionPool = DevServerPool.forSession(session);
+
+    Assert.assertSame(sessionPool, DevServerPool.forSession(moduleSession));
+    Assert.assertEquals(
+        Paths.get("/project/target/appengine-pool/it"), sessionPool.getServiceDirectory("it"));
+    Assert.assertNotSame(sessionPool, DevServerPool.forSession(Mockito.mock(MavenSession.class)));
+  }
+
+  @Test
+  public void testForSession_stoppedWhenBuildEnds() {
+    MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    Mockito.when(session.getRequest()).thenReturn(request);
+    DevServerPool.forSession(session).started("it", null, stops::incrementAndGet);
+
+    request.getExecutionListener().sessionEnded(Mockito.mock(ExecutionEvent.class));
+
+    Assert.assertEquals(1, stops.get());
+    Assert.assertFalse(DevServerPool.forSession(session).isRunning("it"));
+  }
+
+  @Test
+  public void testClaimStart_onlyOnce() throws InterruptedException {
+    Assert.assertTrue(pool.claimStart("it", session, first));
+    pool.started("it", 8080, stops::incrementAndGet);
+
+    Assert.assertFalse(pool.claimStart("it", session, first));
+    Assert.assertEquals(Integer.valueOf(8080), pool.getPort("it"));
+  }
+
+  @Test
+  public void testClaimStart_waitsForStartingModule() throws Exception {
+    Assert.assertTrue(pool.claimStart("it", session, first));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Boolean> waiting = executor.submit(() -> pool.claimStart("it", session, first));
+      try {
+        waiting.get(100, TimeUnit.MILLISECONDS);
+        Assert.fail();
+      } catch (TimeoutException ex) {
+        // still starting
+      }
+
+      pool.started("it", null, stops::incrementAndGet);
+
+      Assert.assertFalse(waiting.get(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testClaimStart_waitsForHoldingModule() throws Exception {
+    setUpSession();
+    pool.claimStart("it", session, first);
+    pool.started("it", null, stops::incrementAndGet);
+    pool.join("it", first);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Boolean> waiting = executor.submit(() -> pool.claimStart("it", session, second));
+      try {
+        waiting.get(100, TimeUnit.MILLISECONDS);
+        Assert.fail();
+      } catch (TimeoutException ex) {
+        // the first module still runs its tests against the server
+      }
+
+      Assert.assertFalse(pool.leave("it", session, first));
+
+      Assert.assertFalse(waiting.get(10, TimeUnit.SECONDS));
+      Assert.assertEquals(0, stops.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testClaimStart_holdingModuleBuildEnded() throws Exception {
+    setUpSession();
+    pool.claimStart("it", session, first);
+    pool.started("it", null, stops::incrementAndGet);
+    pool.join("it", first);
+    // the first module failed before its stop goal
+    result.addBuildSummary(new BuildSuccess(first, 0));
+
+    Assert.assertFalse(pool.claimStart("it", session, second));
+  }
+
+  @Test
+  public void testClaimStart_sameModuleAgain() throws InterruptedException {
+    Assert.assertTrue(pool.claimStart("it", session, first));
+    pool.started("it", null, stops::incrementAndGet);
+
+    Assert.assertFalse(pool.claimStart("it", session, first));
+  }
+
+  @Test
+  public void testRelease() throws InterruptedException {
+    pool.claimStart("it", session, first);
+    pool.started("it", null, stops::incrementAndGet);
+    pool.release("it", first);
+
+    Assert.assertFalse(pool.claimStart("it", session, second));
+  }
+
+  @Test
+  public void testClaimStart_afterStartFailed() throws InterruptedException {
+    Assert.assertTrue(pool.claimStart("it", session, first));
+    pool.startFailed("it");
+
+    Assert.assertTrue(pool.claimStart("it", session, first));
+  }
+
+  @Test
+  public void testLeave_otherModuleStillUsesServer() {
+    setUpSession();
+    result.addBuildSummary(new BuildSuccess(first, 0));
+    pool.started("it", null, stops::incrementAndGet);
+    pool.join("it", first);
+    pool.join("it", second);
+
+    Assert.assertFalse(pool.leave("it", session, first));
+    Assert.assertTrue(pool.isRunning("it"));
+    Assert.assertEquals(0, stops.get());
+  }
+
+  @Test
+  public void testLeave_otherModuleNotStartedYet() {
+    setUpSession();
+    pool.started("it", null, stops::incrementAndGet);
+    pool.join("it", first);
+
+    Assert.assertFalse(pool.leave("it", session, first));
+    Assert.assertTrue(pool.isRunning("it"));
+    Assert.assertEquals(0, stops.get());
+  }
+
+  @Test
+  public void testLeave_lastModule() {
+    setUpSession();
+    result.addBuildSummary(new BuildSuccess(first, 0));
+    pool.started("it", null, stops::incrementAndGet);
+    pool.join("it", first);
+    pool.join("it", second);
+    pool.leave("it", session, first);
+
+    Assert.assertTrue(pool.leave("it", session, second));
+    Assert.assertFalse(pool.isRunning("it"));
+    Assert.assertEquals(1, stops.get());
+  }
+
+  @Test
+  public void testStop_onlyOnce() {
+    pool.started("it", null, stops::incrementAndGet);
+
+    Assert.assertTrue(pool.stop("it"));
+    Assert.assertFalse(pool.stop("it"));
+    Assert.assertEquals(1, stops.get());
+  }
+
+  @Test
+  public void testStopAll() {
+    pool.started("it", null, stops::incrementAndGet);
+    pool.started("other", null, stops::incrementAndGet);
+
+    pool.stopAll();
+
+    Assert.assertEquals(2, stops.get());
+    Assert.assertFalse(pool.isRunning("it"));
+    Assert.assertFalse(pool.isRunning("other"));
+  }
+
+  @Test
+  public void testAwaitReload() throws Exception {
+    pool.newReloadListener("it").onOutputLine("INFO: A file has changed, reloading the web app.");
+    int reloads = pool.getReloadCount("it");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.submit(
+          () -> {
+            Thread.sleep(100);
+            pool.newReloadListener("it").onOutputLine("INFO: Dev App Server is now running");
+            pool.newReloadListener("it")
+                .onOutputLine("INFO: A file has changed, reloading the web application.");
+            return null;
+          });
+
+      Assert.assertTrue(pool.awaitReload("it", reloads, 10000));
+      Assert.assertEquals(2, pool.getReloadCount("it"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testAwaitReload_timeout() throws InterruptedException {
+    pool.newReloadListener("other")
+        .onOutputLine("INFO: A file has changed, reloading the web application.");
+
+    Assert.assertFalse(pool.awaitReload("it", 0, 100));
+  }
+
+  @Test
+  public void testGetServiceDirectory() {
+    Path directory = pool.getServiceDirectory("it");
+
+    Assert.assertEquals(Paths.get("/pool/it"), directory);
+    Assert.assertFalse(pool.isRunning("it"));
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.run;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FileSyncTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private Log log;
+
+  private Path classes;
+  private Path webapp;
+  private Path explodedWar;
+  private FileSync fileSync;
+
+  @Before
+  public void setUp() throws IOException {
+    classes = tempFolder.newFolder("classes").toPath();
+    webapp = tempFolder.newFolder("webapp").toPath();
+    explodedWar = tempFolder.newFolder("war").toPath();
+    fileSync =
+        new FileSync(
+            ImmutableMap.of(classes, explodedWar.resolve("WEB-INF/classes"), webapp, explodedWar),
+            50,
+            log);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    fileSync.close();
+  }
+
+  private static Path write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testSync_copiesChangedFiles() throws IOException {
+    Path changedClass = write(classes.resolve("com/example/Foo.class"), "foo");
+    Path changedPage = write(webapp.resolve("index.html"), "index");
+
+    Assert.assertEquals(2, fileSync.sync(ImmutableSet.of(changedClass, changedPage)));
+
+    Assert.assertEquals("foo", read(explodedWar.resolve("WEB-INF/classes/com/example/Foo.class")));
+    Assert.assertEquals("index", read(explodedWar.resolve("index.html")));
+  }
+
+  @Test
+  public void testSync_skipsUnchangedFiles() throws IOException {
+    Path changedPage = write(webapp.resolve("index.html"), "index");
+    fileSync.sync(ImmutableSet.of(changedPage));
+
+    Assert.assertEquals(0, fileSync.sync(ImmutableSet.of(changedPage)));
+  }
+
+  @Test
+  public void testSync_copiesNewDirectories() throws IOException {
+    write(classes.resolve("com/example/Foo.class"), "foo");
+    write(classes.resolve("com/example/Bar.class"), "bar");
+
+    Assert.assertEquals(2, fileSync.sync(ImmutableSet.of(classes.resolve("com"))));
+
+    Assert.assertEquals("bar", read(explodedWar.resolve("WEB-INF/classes/com/example/Bar.class")));
+  }
+
+  @Test
+  public void testSync_deletesRemovedFiles() throws IOException {
+    Path page = write(webapp.resolve("old.html"), "old");
+    fileSync.sync(ImmutableSet.of(page));
+    Files.delete(page);
+
+    Assert.assertEquals(1, fileSync.sync(ImmutableSet.of(page)));
+
+    Assert.assertFalse(Files.exists(explodedWar.resolve("old.html")));
+  }
+
+  @Test
+  public void testSync_ignoresUnwatchedFiles() throws IOException {
+    Path other = write(tempFolder.getRoot().toPath().resolve("other.txt"), "other");
+
+    Assert.assertEquals(0, fileSync.sync(ImmutableSet.of(other)));
+  }
+
+  @Test
+  public void testMirror() throws IOException {
+    Path source = tempFolder.newFolder("source").toPath();
+    Path target = tempFolder.getRoot().toPath().resolve("target");
+    write(source.resolve("WEB-INF/appengine-web.xml"), "<appengine-web-app/>");
+    write(source.resolve("index.html"), "index");
+    write(target.resolve("stale/old.html"), "old");
+    Assert.assertEquals(3, FileSync.mirror(source, target));
+
+    Assert.assertEquals("index", read(target.resolve("index.html")));
+    Assert.assertFalse(Files.exists(target.resolve("stale")));
+    Assert.assertEquals(0, FileSync.mirror(source, target));
+  }
+
+  @Test
+  public void testAwaitChanges_collectsBurst() throws Exception {
+    Path first = write(webapp.resolve("first.html"), "first");
+    Path second = write(classes.resolve("Second.class"), "second");
+
+    Set<Path> changes = fileSync.awaitChanges();
+    while (!changes.containsAll(ImmutableSet.of(first, second))) {
+      // some file systems report the writes in separate bursts
+      changes.addAll(fileSync.awaitChanges());
+    }
+
+    Assert.assertEquals(2, fileSync.sync(changes));
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.run;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Build;
+import org.apache.maven.project.MavenProject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PortAllocatorTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private MavenProject mavenProject;
+  @Mock private Build build;
+  @Mock private MavenSession session;
+  @Mock private MavenSession otherSession;
+
+  @Before
+  public void setUp() {
+    Mockito.when(mavenProject.getBuild()).thenReturn(build);
+    Mockito.when(build.getDirectory()).thenReturn(tempFolder.getRoot().getPath() + "/target");
+  }
+
+  @Test
+  public void testAllocate_rangeIsFree() throws IOException {
+    int firstPort = PortAllocator.allocate(session, null, 3);
+
+    InetAddress loopback = InetAddress.getLoopbackAddress();
+    for (int port = firstPort; port < firstPort + 3; port++) {
+      try (ServerSocket socket = new ServerSocket(port, 1, loopback)) {
+        Assert.assertEquals(port, socket.getLocalPort());
+      }
+    }
+  }
+
+  @Test
+  public void testAllocate_rangesDoNotOverlap() throws IOException {
+    int first = PortAllocator.allocate(session, "localhost", 2);
+    int second = PortAllocator.allocate(session, "localhost", 2);
+
+    Assert.assertTrue(second >= first + 2 || first >= second + 2);
+  }
+
+  @Test
+  public void testAllocate_trackedPerBuild() throws IOException {
+    int port = PortAllocator.allocate(session, null, 1);
+
+    Assert.assertTrue(PortAllocator.isAllocated(session, port));
+    Assert.assertFalse(PortAllocator.isAllocated(otherSession, port));
+  }
+
+  @Test
+  public void testPortFile() throws IOException {
+    Assert.assertNull(PortAllocator.readPortFile(mavenProject));
+
+    PortAllocator.writePortFile(mavenProject, 8123);
+
+    Assert.assertEquals(Integer.valueOf(8123), PortAllocator.readPortFile(mavenProject));
+  }
+
+  @Test
+  public void testReadPortFile_invalid() throws IOException {
+    PortAllocator.writePortFile(mavenProject, 1);
+    Files.write(PortAllocator.getPortFile(mavenProject), "x".getBytes(StandardCharsets.UTF_8));
+
+    try {
+      PortAllocator.readPortFile(mavenProject);
+      Assert.fail();
+    } catch (IOException ex) {
+      Assert.assertTrue(ex.getMessage().startsWith("Invalid Dev App Server port file"));
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.run;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReadinessProbeTest {
+
+  private HttpServer server;
+
+  @After
+  public void tearDown() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  private int startServer(String path, int... statuses) throws IOException {
+    AtomicInteger requests = new AtomicInteger();
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(
+        path,
+        exchange -> {
+          int request = requests.getAndIncrement();
+          exchange.sendResponseHeaders(statuses[Math.min(request, statuses.length - 1)], -1);
+          exchange.close();
+        });
+    server.start();
+    return server.getAddress().getPort();
+  }
+
+  @Test
+  public void testBuildUrl_defaults() throws IOException {
+    Assert.assertEquals(
+        new URL("http://localhost:8080/"), ReadinessProbe.buildUrl(null, null, null));
+    Assert.assertEquals(
+        new URL("http://localhost:9090/_ah/health"),
+        ReadinessProbe.buildUrl("0.0.0.0", 9090, "_ah/health"));
+  }
+
+  @Test
+  public void testBuildUrl_ipv6Host() throws IOException {
+    Assert.assertEquals(
+        new URL("http://[::1]:8080/ready"), ReadinessProbe.buildUrl("::1", 8080, "/ready"));
+  }
+
+  @Test
+  public void testAwait_readyImmediately() throws Exception {
+    int port = startServer("/", 404);
+
+    Assert.assertTrue(
+        new ReadinessProbe(ReadinessProbe.buildUrl("127.0.0.1", port, "/")).await(5000));
+  }
+
+  @Test
+  public void testAwait_retriesServerErrors() throws Exception {
+    int port = startServer("/health", 503, 503, 200);
+
+    Assert.assertTrue(
+        new ReadinessProbe(ReadinessProbe.buildUrl("127.0.0.1", port, "/health")).await(5000));
+  }
+
+  @Test
+  public void testAwait_timeout() throws Exception {
+    int port = startServer("/", 500);
+
+    Assert.assertFalse(
+        new ReadinessProbe(ReadinessProbe.buildUrl("127.0.0.1", port, "/")).await(300));
+  }
+
+  @Test
+  public void testAwait_processExited() throws Exception {
+    ReadinessProbe probe = new ReadinessProbe(ReadinessProbe.buildUrl("127.0.0.1", 1, "/"));
+    Thread exit =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(100);
+              } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+              }
+              probe.onExit(1);
+            });
+    exit.start();
+    long start = System.nanoTime();
+
+    Assert.assertFalse(probe.await(30000));
+
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    Assert.assertEquals(Integer.valueOf(1), probe.getExitCode());
+    exit.join();
+  }
+
+  @Test
+  public void testIsListening() throws Exception {
+    int port = startServer("/", 200);
+
+    Assert.assertTrue(
+        new ReadinessProbe(ReadinessProbe.buildUrl("127.0.0.1", port, "/")).isListening());
+    server.stop(0);
+    server = null;
+    Assert.assertFalse(
+        new ReadinessProbe(ReadinessProbe.buildUrl("127.0.0.1", port, "/")).isListening());
+  }
+
+  @Test
+  public void testIsReady_notListening() throws Exception {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      port = socket.getLocalPort();
+    }
+
+    Assert.assertFalse(
+        new ReadinessProbe(ReadinessProbe.buildUrl("127.0.0.1", port, "/")).isReady());
+  }
+}
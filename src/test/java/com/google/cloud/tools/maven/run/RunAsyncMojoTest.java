@@ -16,9 +16,27 @@
 
 package com.google.cloud.tools.maven.run;
 
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessOutputLineListener;
+import com.google.common.collect.ImmutableList;
+import com.sun.net.httpserver.HttpServer;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Build;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -30,6 +48,10 @@ public class RunAsyncMojoTest {
 
   @Mock private Runner.Factory factory;
   @Mock private Runner runner;
+  @Mock private MavenSession mavenSession;
+  @Mock private MavenProject mavenProject;
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
 
   @InjectMocks private RunAsyncMojo testMojo;
 
@@ -45,6 +67,94 @@ public class RunAsyncMojoTest {
     Mockito.verify(runner).runAsync(34);
   }
 
+  @Test
+  public void testExecute_readinessProbe() throws MojoExecutionException {
+    testMojo.startSuccessTimeout = 34;
+    testMojo.readinessProbe = true;
+    testMojo.readinessPath = "/health";
+    testMojo.execute();
+    Mockito.verify(runner).runAsyncUntilReady(34, "/health");
+    Mockito.verifyNoMoreInteractions(runner);
+  }
+
+  @Test
+  public void testExecute_pooled() throws Exception {
+    Path targetDirectory = tempFolder.newFolder("target").toPath();
+    Path service = targetDirectory.resolve("app-1.0");
+    Files.createDirectories(service.resolve("WEB-INF"));
+    Files.write(service.resolve("WEB-INF/appengine-web.xml"), new byte[0]);
+    Build build = new Build();
+    build.setDirectory(targetDirectory.toString());
+    build.setFinalName("app-1.0");
+    Mockito.when(mavenProject.getBuild()).thenReturn(build);
+    Mockito.when(mavenSession.getTopLevelProject()).thenReturn(mavenProject);
+    Properties properties = new Properties();
+    Mockito.when(mavenProject.getProperties()).thenReturn(properties);
+    AtomicReference<ProcessOutputLineListener> outputListener = new AtomicReference<>();
+    Mockito.doAnswer(
+            invocation -> {
+              // the server is started on the pool directory, reloading swapped services
+              Assert.assertEquals(
+                  ImmutableList.of(targetDirectory.resolve("appengine-pool/it")),
+                  testMojo.getServices());
+              Assert.assertTrue(testMojo.getAutomaticRestart());
+              outputListener.set(testMojo.getDevServerOutputListener());
+              return null;
+            })
+        .when(runner)
+        .runAsync(30);
+    testMojo.startSuccessTimeout = 30;
+    testMojo.pool = "it";
+    HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          exchange.sendResponseHeaders(200, -1);
+          exchange.close();
+        });
+    server.start();
+    setField("host", "127.0.0.1");
+    setField("port", server.getAddress().getPort());
+    AtomicBoolean reloaded = new AtomicBoolean();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      testMojo.execute();
+      Files.write(service.resolve("index.html"), new byte[0]);
+      executor.submit(
+          () -> {
+            Thread.sleep(200);
+            reloaded.set(true);
+            outputListener
+                .get()
+                .onOutputLine("INFO: A file has changed, reloading the web application.");
+            return null;
+          });
+      testMojo.execute();
+    } finally {
+      executor.shutdownNow();
+      server.stop(0);
+    }
+
+    // the swap only completes once the pooled server reloaded the service
+    Assert.assertTrue(reloaded.get());
+    Assert.assertEquals(
+        Integer.toString(server.getAddress().getPort()),
+        properties.getProperty(PortAllocator.ALLOCATED_PORT_PROPERTY));
+    Mockito.verify(runner).runAsync(30);
+    Assert.assertTrue(
+        Files.exists(targetDirectory.resolve("appengine-pool/it/WEB-INF/appengine-web.xml")));
+    Assert.assertTrue(Files.exists(targetDirectory.resolve("appengine-pool/it/index.html")));
+    Mockito.verify(runner, Mockito.never()).stop();
+    Assert.assertTrue(DevServerPool.forSession(mavenSession).stop("it"));
+    Mockito.verify(runner).stop();
+  }
+
+  private void setField(String name, Object value) throws ReflectiveOperationException {
+    Field field = AbstractRunMojo.class.getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(testMojo, value);
+  }
+
   @Test
   public void testExecute_skipTest() throws MojoExecutionException {
     testMojo.setSkip(true);
@@ -23,15 +23,22 @@ import static org.mockito.Mockito.when;
 
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.operations.DevServer;
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessExitListener;
 import com.google.cloud.tools.maven.cloudsdk.CloudSdkAppEngineFactory;
 import com.google.cloud.tools.maven.cloudsdk.ConfigReader;
 import com.google.cloud.tools.maven.run.Runner.ConfigBuilder;
 import com.google.common.collect.ImmutableList;
+import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.junit.Assert;
@@ -96,7 +103,8 @@ public class RunnerTest {
   public void testRunAsync() throws MojoExecutionException, IOException, AppEngineException {
     final int START_SUCCESS_TIMEOUT = 25;
 
-    when(appengineFactory.devServerRunAsync(START_SUCCESS_TIMEOUT)).thenReturn(devServer);
+    when(appengineFactory.devServerRunAsync(START_SUCCESS_TIMEOUT, null, null))
+        .thenReturn(devServer);
     setUpAppEngineWebXml();
     when(runMojo.getServices()).thenReturn(ImmutableList.of(appDir));
 
@@ -107,6 +115,122 @@ public class RunnerTest {
     verify(logMock).info(contains("started"));
   }
 
+  private static int findFreePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      return socket.getLocalPort();
+    }
+  }
+
+  @Test
+  public void testRunAsyncUntilReady() throws Exception {
+    int port = findFreePort();
+    List<HttpServer> servers = new ArrayList<>();
+    when(appengineFactory.devServerRunAsync(Mockito.eq(0), Mockito.isNull(), Mockito.any()))
+        .thenReturn(devServer);
+    Mockito.doAnswer(
+            invocation -> {
+              // the server only listens once the Dev App Server was started
+              HttpServer server =
+                  HttpServer.create(
+                      new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+              server.createContext(
+                  "/health",
+                  exchange -> {
+                    exchange.sendResponseHeaders(200, -1);
+                    exchange.close();
+                  });
+              server.start();
+              servers.add(server);
+              return null;
+            })
+        .when(devServer)
+        .run(Mockito.any());
+    when(runMojo.getHost()).thenReturn("127.0.0.1");
+    when(runMojo.getPort()).thenReturn(port);
+    setUpAppEngineWebXml();
+    when(runMojo.getServices()).thenReturn(ImmutableList.of(appDir));
+
+    try {
+      testRunner.runAsyncUntilReady(10, "/health");
+
+      verify(devServer).run(configBuilder.buildRunConfiguration(ImmutableList.of(appDir), null));
+      verify(logMock).info(contains("/health"));
+      verify(logMock).info(contains("started in"));
+      verify(runMojo, Mockito.never()).stopDevServer();
+    } finally {
+      servers.forEach(server -> server.stop(0));
+    }
+  }
+
+  @Test
+  public void testRunAsyncUntilReady_timeout() throws Exception {
+    int port = findFreePort();
+    when(appengineFactory.devServerRunAsync(Mockito.eq(0), Mockito.isNull(), Mockito.any()))
+        .thenReturn(devServer);
+    when(runMojo.getHost()).thenReturn("127.0.0.1");
+    when(runMojo.getPort()).thenReturn(port);
+    setUpAppEngineWebXml();
+    when(runMojo.getServices()).thenReturn(ImmutableList.of(appDir));
+
+    try {
+      testRunner.runAsyncUntilReady(1, null);
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals(
+          "Dev App Server did not answer at http://127.0.0.1:" + port + "/ within 1 seconds",
+          ex.getMessage());
+    }
+    verify(runMojo).stopDevServer();
+  }
+
+  @Test
+  public void testRunAsyncUntilReady_processExited() throws Exception {
+    int port = findFreePort();
+    when(appengineFactory.devServerRunAsync(Mockito.eq(0), Mockito.isNull(), Mockito.any()))
+        .thenAnswer(
+            invocation -> {
+              invocation.<ProcessExitListener>getArgument(2).onExit(1);
+              return devServer;
+            });
+    when(runMojo.getHost()).thenReturn("127.0.0.1");
+    when(runMojo.getPort()).thenReturn(port);
+    setUpAppEngineWebXml();
+    when(runMojo.getServices()).thenReturn(ImmutableList.of(appDir));
+    long start = System.nanoTime();
+
+    try {
+      testRunner.runAsyncUntilReady(30, null);
+      fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals(
+          "Dev App Server exited with code 1 before answering at http://127.0.0.1:" + port + "/",
+          ex.getMessage());
+    }
+    // not waiting for the timeout
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    verify(runMojo, Mockito.never()).stopDevServer();
+  }
+
+  @Test
+  public void testRunAsyncUntilReady_portInUse() throws Exception {
+    try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      when(runMojo.getHost()).thenReturn("127.0.0.1");
+      when(runMojo.getPort()).thenReturn(socket.getLocalPort());
+
+      try {
+        testRunner.runAsyncUntilReady(10, null);
+        fail();
+      } catch (MojoExecutionException ex) {
+        Assert.assertEquals(
+            "Another process already listens at http://127.0.0.1:"
+                + socket.getLocalPort()
+                + "/, not starting the Dev App Server",
+            ex.getMessage());
+      }
+    }
+    Mockito.verifyZeroInteractions(appengineFactory);
+  }
+
   @Test
   public void testProcessServices_singleService() throws MojoExecutionException {
     List<Path> userConfiguredServices = ImmutableList.of(STANDARD_PROJECT_WEBAPP);
@@ -22,10 +22,21 @@ import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.configuration.StopConfiguration;
 import com.google.cloud.tools.appengine.operations.DevServer;
 import com.google.cloud.tools.maven.cloudsdk.CloudSdkAppEngineFactory;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.execution.BuildSuccess;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Build;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
@@ -36,8 +47,12 @@ import org.mockito.junit.MockitoJUnitRunner;
 @RunWith(MockitoJUnitRunner.class)
 public class StopMojoTest {
 
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
   @Mock private CloudSdkAppEngineFactory factoryMock;
   @Mock private DevServer devServerMock;
+  @Mock private MavenSession mavenSession;
+  @Mock private MavenProject mavenProject;
 
   @InjectMocks private StopMojo stopMojo;
 
@@ -64,6 +79,84 @@ public class StopMojoTest {
     Assert.assertEquals(Integer.valueOf(124), captor.getValue().getPort());
   }
 
+  @Test
+  public void testStop_pooledServerLeftRunning() throws MojoExecutionException {
+    MavenProject other = new MavenProject();
+    Mockito.when(mavenSession.getGoals()).thenReturn(ImmutableList.of("appengine:start"));
+    Mockito.when(mavenSession.getProjects()).thenReturn(ImmutableList.of(mavenProject, other));
+    Mockito.when(mavenSession.getResult()).thenReturn(new DefaultMavenExecutionResult());
+    AtomicInteger stops = new AtomicInteger();
+    DevServerPool.forSession(mavenSession).started("it", null, stops::incrementAndGet);
+    stopMojo.pool = "it";
+
+    stopMojo.execute();
+
+    Assert.assertEquals(0, stops.get());
+    Mockito.verifyNoMoreInteractions(devServerMock);
+    Assert.assertTrue(DevServerPool.forSession(mavenSession).stop("it"));
+  }
+
+  @Test
+  public void testStop_pooledServerStoppedByLastModule() throws MojoExecutionException {
+    MavenProject other = new MavenProject();
+    DefaultMavenExecutionResult result = new DefaultMavenExecutionResult();
+    result.addBuildSummary(new BuildSuccess(other, 0));
+    Mockito.when(mavenSession.getGoals()).thenReturn(ImmutableList.of("appengine:start"));
+    Mockito.when(mavenSession.getProjects()).thenReturn(ImmutableList.of(other, mavenProject));
+    Mockito.when(mavenSession.getResult()).thenReturn(result);
+    AtomicInteger stops = new AtomicInteger();
+    DevServerPool.forSession(mavenSession).started("it", null, stops::incrementAndGet);
+    stopMojo.pool = "it";
+
+    stopMojo.execute();
+
+    Assert.assertEquals(1, stops.get());
+    Mockito.verifyNoMoreInteractions(devServerMock);
+    Assert.assertFalse(DevServerPool.forSession(mavenSession).isRunning("it"));
+  }
+
+  @Test
+  public void testStop_pooledServerNotRunning() throws MojoExecutionException, AppEngineException {
+    stopMojo.pool = "it";
+
+    stopMojo.execute();
+
+    verify(devServerMock).stop(Mockito.any());
+  }
+
+  @Test
+  public void testStop_allocatedPort()
+      throws MojoExecutionException, AppEngineException, IOException {
+    Build build = Mockito.mock(Build.class);
+    Mockito.when(mavenProject.getBuild()).thenReturn(build);
+    Mockito.when(build.getDirectory()).thenReturn(tempFolder.getRoot().getPath());
+    PortAllocator.writePortFile(mavenProject, 8765);
+    stopMojo.allocatePort = true;
+
+    stopMojo.execute();
+
+    ArgumentCaptor<StopConfiguration> captor = ArgumentCaptor.forClass(StopConfiguration.class);
+    verify(devServerMock).stop(captor.capture());
+    Assert.assertEquals(Integer.valueOf(8765), captor.getValue().getPort());
+    Assert.assertFalse(Files.exists(PortAllocator.getPortFile(mavenProject)));
+  }
+
+  @Test
+  public void testStop_portFileIgnoredWithoutAllocatePort()
+      throws MojoExecutionException, AppEngineException, IOException {
+    Build build = Mockito.mock(Build.class);
+    Mockito.when(mavenProject.getBuild()).thenReturn(build);
+    Mockito.when(build.getDirectory()).thenReturn(tempFolder.getRoot().getPath());
+    PortAllocator.writePortFile(mavenProject, 8765);
+
+    stopMojo.execute();
+
+    ArgumentCaptor<StopConfiguration> captor = ArgumentCaptor.forClass(StopConfiguration.class);
+    verify(devServerMock).stop(captor.capture());
+    Assert.assertNull(captor.getValue().getPort());
+    Assert.assertTrue(Files.exists(PortAllocator.getPortFile(mavenProject)));
+  }
+
   @Test
   public void testExecute_skipTest() throws MojoExecutionException {
     stopMojo.setSkip(true);
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.run;
+
+import com.google.cloud.tools.appengine.configuration.RunConfiguration;
+import com.google.cloud.tools.appengine.configuration.StopConfiguration;
+import com.google.cloud.tools.appengine.operations.DevServer;
+import com.google.cloud.tools.maven.cloudsdk.CloudSdkAppEngineFactory;
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WatchMojoTest {
+
+  @Mock private Runner.Factory factory;
+  @Mock private MavenProject mavenProject;
+  @Mock private Log log;
+  @Mock private CloudSdkAppEngineFactory appEngineFactory;
+  @Mock private DevServer devServer;
+
+  @InjectMocks private WatchMojo testMojo;
+
+  private void setUpBuild() {
+    Build build = new Build();
+    build.setDirectory("/project/target");
+    build.setFinalName("app-1.0");
+    Mockito.when(mavenProject.getBuild()).thenReturn(build);
+    testMojo.classesDirectory = new File("/project/target/classes");
+    testMojo.webappDirectory = new File("/project/src/main/webapp");
+  }
+
+  @Test
+  public void testGetSyncedDirectories() throws MojoExecutionException {
+    setUpBuild();
+
+    Map<Path, Path> directories = testMojo.getSyncedDirectories();
+
+    Assert.assertEquals(
+        Paths.get("/project/target/app-1.0/WEB-INF/classes"),
+        directories.get(Paths.get("/project/target/classes")));
+    Assert.assertEquals(
+        Paths.get("/project/target/app-1.0"),
+        directories.get(Paths.get("/project/src/main/webapp")));
+  }
+
+  @Test
+  public void testGetSyncedDirectories_configuredService() throws Exception {
+    testMojo.classesDirectory = new File("/project/target/classes");
+    testMojo.webappDirectory = new File("/project/src/main/webapp");
+    setServices(ImmutableList.of(new File("/project/target/exploded")));
+
+    Map<Path, Path> directories = testMojo.getSyncedDirectories();
+
+    Assert.assertEquals(
+        Paths.get("/project/target/exploded/WEB-INF/classes"),
+        directories.get(Paths.get("/project/target/classes")));
+    Assert.assertEquals(
+        Paths.get("/project/target/exploded"),
+        directories.get(Paths.get("/project/src/main/webapp")));
+  }
+
+  @Test
+  public void testGetSyncedDirectories_multipleServices() throws Exception {
+    setServices(ImmutableList.of(new File("/one"), new File("/two")));
+
+    try {
+      testMojo.getSyncedDirectories();
+      Assert.fail();
+    } catch (MojoExecutionException ex) {
+      Assert.assertEquals(
+          "appengine:watch syncs this module into a single service, found: "
+              + ImmutableList.of(Paths.get("/one"), Paths.get("/two")),
+          ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testGetSyncedDirectories_filteredWebResourcesNotSynced()
+      throws MojoExecutionException {
+    setUpBuild();
+    Xpp3Dom configuration = new Xpp3Dom("configuration");
+    Xpp3Dom webResources = new Xpp3Dom("webResources");
+    webResources.addChild(new Xpp3Dom("resource"));
+    configuration.addChild(webResources);
+    Plugin warPlugin = new Plugin();
+    warPlugin.setConfiguration(configuration);
+    Mockito.when(mavenProject.getPlugin("org.apache.maven.plugins:maven-war-plugin"))
+        .thenReturn(warPlugin);
+    testMojo.setLog(log);
+
+    Map<Path, Path> directories = testMojo.getSyncedDirectories();
+
+    Assert.assertEquals(1, directories.size());
+    Assert.assertTrue(directories.containsKey(Paths.get("/project/target/classes")));
+    Mockito.verify(log).warn(Mockito.startsWith("Not syncing "));
+  }
+
+  private void setServices(List<File> services) throws ReflectiveOperationException {
+    Field field = AbstractRunMojo.class.getDeclaredField("services");
+    field.setAccessible(true);
+    field.set(testMojo, services);
+  }
+
+  @Test
+  public void testExecute_stopsServerWhenInterrupted() throws Exception {
+    setUpBuild();
+    Runner runner = Mockito.mock(Runner.class);
+    Mockito.when(factory.newRunner(testMojo)).thenReturn(runner);
+    Mockito.doAnswer(
+            invocation -> {
+              Thread.currentThread().interrupt();
+              return null;
+            })
+        .when(runner)
+        .runAsync(0);
+    Mockito.when(appEngineFactory.devServerStop()).thenReturn(devServer);
+    testMojo.setLog(log);
+
+    testMojo.execute();
+
+    Assert.assertTrue(Thread.interrupted());
+    InOrder inOrder = Mockito.inOrder(appEngineFactory, runner, devServer);
+    // the stop action is ready before the server starts
+    inOrder.verify(appEngineFactory).devServerStop();
+    inOrder.verify(runner).runAsync(0);
+    inOrder.verify(devServer).stop(Mockito.any(StopConfiguration.class));
+  }
+
+  @Test
+  public void testBuildRunConfiguration_automaticRestart() {
+    RunConfiguration configuration =
+        new Runner.ConfigBuilder(testMojo)
+            .buildRunConfiguration(ImmutableList.of(Paths.get("/project/target/app-1.0")), null);
+
+    Assert.assertEquals(Boolean.TRUE, configuration.getAutomaticRestart());
+  }
+
+  @Test
+  public void testStopOnce() {
+    AtomicInteger stops = new AtomicInteger();
+    Runnable stopAction = WatchMojo.stopOnce(stops::incrementAndGet);
+
+    stopAction.run();
+    stopAction.run();
+
+    Assert.assertEquals(1, stops.get());
+  }
+
+  @Test
+  public void testExecute_skipTest() throws MojoExecutionException {
+    testMojo.setSkip(true);
+    testMojo.execute();
+    Mockito.verifyNoMoreInteractions(factory);
+  }
+}
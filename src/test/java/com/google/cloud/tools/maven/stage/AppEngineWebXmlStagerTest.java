@@ -65,11 +65,21 @@ public class AppEngineWebXmlStagerTest {
     when(stageMojo.getAppEngineFactory()).thenReturn(appengineFactory);
     when(appengineFactory.appengineWebXmlStaging()).thenReturn(staging);
     when(configBuilder.buildConfiguration()).thenReturn(stagingConfiguration);
-    when(stagingConfiguration.getStagingDirectory()).thenReturn(tempFolder.getRoot().toPath());
+    when(stagingConfiguration.getStagingDirectory())
+        .thenReturn(tempFolder.getRoot().toPath().resolve("staging"));
+  }
+
+  private Path createSourceDirectory() throws IOException {
+    Path sourceDirectory = tempFolder.newFolder("source").toPath();
+    Files.createDirectories(sourceDirectory.resolve("WEB-INF"));
+    Files.createFile(sourceDirectory.resolve("WEB-INF").resolve("appengine-web.xml"));
+    when(stagingConfiguration.getSourceDirectory()).thenReturn(sourceDirectory);
+    return sourceDirectory;
   }
 
   @Test
   public void testStage() throws Exception {
+    createSourceDirectory();
 
     // invoke
     testStager.stage();
@@ -80,6 +90,48 @@ public class AppEngineWebXmlStagerTest {
     verify(logMock).info("Detected App Engine appengine-web.xml based application.");
   }
 
+  @Test
+  public void testStage_incremental() throws Exception {
+    createSourceDirectory();
+    Path stagingDirectory = tempFolder.getRoot().toPath().resolve("staging");
+    when(stageMojo.isIncremental()).thenReturn(true);
+
+    // first stage is a full stage that records a manifest
+    testStager.stage();
+    verify(staging).stageStandard(stagingConfiguration);
+    Assert.assertTrue(Files.exists(IncrementalStaging.getManifestFile(stagingDirectory)));
+
+    // nothing changed, so the second stage does not invoke appcfg
+    testStager.stage();
+    verify(staging, Mockito.times(1)).stageStandard(stagingConfiguration);
+    verify(logMock).info("Staged application is up to date.");
+  }
+
+  @Test
+  public void testStageConfigs_reusesUpToDateStagingDirectory() throws Exception {
+    Path sourceDirectory = createSourceDirectory();
+    Path cronXml = sourceDirectory.resolve("WEB-INF").resolve("cron.xml");
+    Files.write(cronXml, "<cronentries/>".getBytes(StandardCharsets.UTF_8));
+    Path generatedDirectory =
+        tempFolder.getRoot().toPath().resolve("staging/WEB-INF/appengine-generated");
+    Mockito.doAnswer(invocation -> Files.createDirectories(generatedDirectory))
+        .when(staging)
+        .stageStandard(stagingConfiguration);
+
+    // nothing staged yet
+    testStager.stageConfigs();
+    verify(staging).stageStandard(stagingConfiguration);
+
+    // descriptors unchanged, so the staged configuration files are reused
+    testStager.stageConfigs();
+    verify(staging, Mockito.times(1)).stageStandard(stagingConfiguration);
+
+    // a changed descriptor requires appcfg to regenerate the yamls
+    Files.write(cronXml, "<cronentries></cronentries>".getBytes(StandardCharsets.UTF_8));
+    testStager.stageConfigs();
+    verify(staging, Mockito.times(2)).stageStandard(stagingConfiguration);
+  }
+
   @Test
   @Parameters({
     "dockerfile|dockerfile1|dockerfile2|dockerfile",
@@ -27,10 +27,12 @@ import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.junit.Before;
 import org.junit.Rule;
+import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 @RunWith(JUnitParamsRunner.class)
@@ -58,4 +60,10 @@ public class AppYamlStagerTest {
     when(configBuilder.buildConfiguration()).thenReturn(stagingConfiguration);
     when(stagingConfiguration.getStagingDirectory()).thenReturn(tempFolder.getRoot().toPath());
   }
+
+  @Test
+  public void testStageConfigs_doesNotStage() {
+    testStager.stageConfigs();
+    Mockito.verifyNoMoreInteractions(staging);
+  }
 }
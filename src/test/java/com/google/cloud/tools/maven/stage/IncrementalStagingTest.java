@@ -0,0 +1,308 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IncrementalStagingTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private Log log;
+
+  private Path sourceDirectory;
+  private Path stagingDirectory;
+  private IncrementalStaging incrementalStaging;
+
+  @Before
+  public void setUp() throws IOException {
+    sourceDirectory = tempFolder.newFolder("source").toPath();
+    stagingDirectory = tempFolder.getRoot().toPath().resolve("staging");
+    incrementalStaging = new IncrementalStaging(log);
+
+    write(sourceDirectory, "WEB-INF/appengine-web.xml", "<appengine-web-app/>");
+    write(sourceDirectory, "WEB-INF/classes/Foo.class", "foo");
+    write(sourceDirectory, "WEB-INF/lib/bar.jar", "bar");
+    write(sourceDirectory, "index.html", "<html/>");
+  }
+
+  private static void write(Path directory, String path, String content) throws IOException {
+    Path file = directory.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void writeJar(Path jar, String entry, String content) throws IOException {
+    Files.createDirectories(jar.getParent());
+    try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+      zip.putNextEntry(new ZipEntry(entry));
+      zip.write(content.getBytes(StandardCharsets.UTF_8));
+      zip.closeEntry();
+    }
+  }
+
+  private static String read(Path directory, String path) throws IOException {
+    return new String(Files.readAllBytes(directory.resolve(path)), StandardCharsets.UTF_8);
+  }
+
+  /** Simulates appcfg by copying the source and generating an extra file. */
+  private void fullStage(AppEngineWebXmlProjectStageConfiguration config) throws IOException {
+    try (Stream<Path> files = Files.walk(sourceDirectory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Path target = stagingDirectory.resolve(sourceDirectory.relativize(file).toString());
+        if (Files.isDirectory(file)) {
+          Files.createDirectories(target);
+        } else {
+          Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+    }
+    write(stagingDirectory, "app.yaml", "runtime: java8");
+    incrementalStaging.writeManifest(config);
+  }
+
+  private AppEngineWebXmlProjectStageConfiguration.Builder configBuilder() {
+    return AppEngineWebXmlProjectStageConfiguration.builder(sourceDirectory, stagingDirectory);
+  }
+
+  @Test
+  public void testUpdate_noManifest() throws IOException {
+    Assert.assertFalse(incrementalStaging.update(configBuilder().build()));
+  }
+
+  @Test
+  public void testUpdate_unchanged() throws IOException {
+    AppEngineWebXmlProjectStageConfiguration config = configBuilder().build();
+    fullStage(config);
+
+    Assert.assertTrue(incrementalStaging.update(config));
+  }
+
+  @Test
+  public void testUpdate_copiesChangedClassesAndJars() throws IOException {
+    AppEngineWebXmlProjectStageConfiguration config = configBuilder().build();
+    fullStage(config);
+
+    write(sourceDirectory, "WEB-INF/classes/Foo.class", "foo2");
+    write(sourceDirectory, "WEB-INF/classes/pkg/Baz.class", "baz");
+    Files.delete(sourceDirectory.resolve("WEB-INF/lib/bar.jar"));
+
+    Assert.assertTrue(incrementalStaging.update(config));
+    Assert.assertEquals("foo2", read(stagingDirectory, "WEB-INF/classes/Foo.class"));
+    Assert.assertEquals("baz", read(stagingDirectory, "WEB-INF/classes/pkg/Baz.class"));
+    Assert.assertFalse(Files.exists(stagingDirectory.resolve("WEB-INF/lib/bar.jar")));
+    Assert.assertEquals("runtime: java8", read(stagingDirectory, "app.yaml"));
+
+    // the recorded manifest reflects the update
+    Assert.assertTrue(incrementalStaging.update(config));
+  }
+
+  @Test
+  public void testUpdate_staticFileChangeRequiresFullStage() throws IOException {
+    AppEngineWebXmlProjectStageConfiguration config = configBuilder().build();
+    fullStage(config);
+
+    write(sourceDirectory, "index.html", "<html>changed</html>");
+
+    Assert.assertFalse(incrementalStaging.update(config));
+  }
+
+  @Test
+  public void testUpdate_jspsRequireFullStage() throws IOException {
+    write(sourceDirectory, "index.jsp", "<%= 1 %>");
+    AppEngineWebXmlProjectStageConfiguration config = configBuilder().build();
+    fullStage(config);
+
+    write(sourceDirectory, "WEB-INF/classes/Foo.class", "foo2");
+
+    Assert.assertFalse(incrementalStaging.update(config));
+  }
+
+  @Test
+  public void testUpdate_reusesCompiledJsps() throws IOException {
+    incrementalStaging = new IncrementalStaging(log, null, "compiler");
+    write(sourceDirectory, "index.jsp", "<%= 1 %>");
+    write(sourceDirectory, "WEB-INF/jsp/other.jspx", "<jsp:root/>");
+    AppEngineWebXmlProjectStageConfiguration config = configBuilder().build();
+    fullStage(config);
+    write(stagingDirectory, "WEB-INF/lib/_ah_compiled_jsps-0000.jar", "compiled");
+    incrementalStaging.writeManifest(config);
+
+    write(sourceDirectory, "WEB-INF/classes/Foo.class", "foo2");
+    write(sourceDirectory, "WEB-INF/lib/bar.jar", "bar2");
+
+    Assert.assertTrue(incrementalStaging.update(config));
+    Assert.assertEquals("foo2", read(stagingDirectory, "WEB-INF/classes/Foo.class"));
+    Assert.assertEquals(
+        "compiled", read(stagingDirectory, "WEB-INF/lib/_ah_compiled_jsps-0000.jar"));
+    Mockito.verify(log).info("JSP compilation cache: reused the compiled classes of all 2 JSP(s).");
+  }
+
+  @Test
+  public void testUpdate_changedJspRequiresFullStage() throws IOException {
+    incrementalStaging = new IncrementalStaging(log, null, "compiler");
+    write(sourceDirectory, "index.jsp", "<%= 1 %>");
+    write(sourceDirectory, "WEB-INF/tags/greeting.tag", "Hello");
+    AppEngineWebXmlProjectStageConfiguration config = configBuilder().build();
+    fullStage(config);
+
+    write(sourceDirectory, "WEB-INF/classes/Foo.class", "foo2");
+    write(sourceDirectory, "WEB-INF/tags/greeting.tag", "Hi");
+
+    Assert.assertFalse(incrementalStaging.update(config));
+    Mockito.verify(log)
+        .info(
+            "JSP compilation cache: recompiling all 1 JSP(s), changed JSP compilation input(s): "
+                + "WEB-INF/tags/greeting.tag, performing a full stage.");
+  }
+
+  @Test
+  public void testUpdate_changedTagLibraryJarRequiresFullStage() throws IOException {
+    incrementalStaging = new IncrementalStaging(log, null, "compiler");
+    write(sourceDirectory, "index.jsp", "<%= 1 %>");
+    writeJar(sourceDirectory.resolve("WEB-INF/lib/taglib.jar"), "META-INF/c.tld", "v1");
+    writeJar(sourceDirectory.resolve("WEB-INF/lib/plain.jar"), "Plain.class", "v1");
+    AppEngineWebXmlProjectStageConfiguration config = configBuilder().build();
+    fullStage(config);
+
+    writeJar(sourceDirectory.resolve("WEB-INF/lib/plain.jar"), "Plain.class", "v2");
+    Assert.assertTrue(incrementalStaging.update(config));
+
+    writeJar(sourceDirectory.resolve("WEB-INF/lib/taglib.jar"), "META-INF/c.tld", "v2");
+    Assert.assertFalse(incrementalStaging.update(config));
+  }
+
+  @Test
+  public void testUpdate_differentJspCompilerRequiresFullStage() throws IOException {
+    write(sourceDirectory, "index.jsp", "<%= 1 %>");
+    AppEngineWebXmlProjectStageConfiguration config = configBuilder().build();
+    new IncrementalStaging(log, null, "compiler").writeManifest(config);
+    fullStage(config);
+    incrementalStaging = new IncrementalStaging(log, null, "other compiler");
+
+    write(sourceDirectory, "WEB-INF/classes/Foo.class", "foo2");
+
+    Assert.assertFalse(incrementalStaging.update(config));
+  }
+
+  @Test
+  public void testGetJspCompilerKey_hashesToolsJar() throws IOException {
+    Path toolsJar = tempFolder.getRoot().toPath().resolve("appengine-tools-api.jar");
+    Path sameJar = tempFolder.getRoot().toPath().resolve("LATEST/appengine-tools-api.jar");
+    Files.createDirectories(sameJar.getParent());
+    Files.write(toolsJar, "tools 1".getBytes(StandardCharsets.UTF_8));
+    Files.write(sameJar, "tools 1".getBytes(StandardCharsets.UTF_8));
+
+    String key = IncrementalStaging.getJspCompilerKey(toolsJar);
+    Assert.assertEquals(key, IncrementalStaging.getJspCompilerKey(sameJar));
+
+    Files.write(toolsJar, "tools 2".getBytes(StandardCharsets.UTF_8));
+    Assert.assertNotEquals(key, IncrementalStaging.getJspCompilerKey(toolsJar));
+  }
+
+  @Test
+  public void testUpdate_jarSplittingRequiresFullStage() throws IOException {
+    AppEngineWebXmlProjectStageConfiguration config =
+        configBuilder().enableJarSplitting(true).build();
+    fullStage(config);
+
+    write(sourceDirectory, "WEB-INF/lib/bar.jar", "bar2");
+
+    Assert.assertFalse(incrementalStaging.update(config));
+  }
+
+  @Test
+  public void testUpdate_jarClassesRequiresFullStage() throws IOException {
+    AppEngineWebXmlProjectStageConfiguration config =
+        configBuilder().enableJarClasses(true).build();
+    fullStage(config);
+
+    write(sourceDirectory, "WEB-INF/classes/Foo.class", "foo2");
+
+    Assert.assertFalse(incrementalStaging.update(config));
+  }
+
+  @Test
+  public void testUpdate_configurationChangeRequiresFullStage() throws IOException {
+    fullStage(configBuilder().build());
+
+    Assert.assertFalse(incrementalStaging.update(configBuilder().deleteJsps(true).build()));
+  }
+
+  @Test
+  public void testUpdate_modifiedStagingDirectoryRequiresFullStage() throws IOException {
+    AppEngineWebXmlProjectStageConfiguration config = configBuilder().build();
+    fullStage(config);
+
+    write(stagingDirectory, "WEB-INF/classes/Foo.class", "tampered");
+
+    Assert.assertFalse(incrementalStaging.update(config));
+  }
+
+  @Test
+  public void testUpdate_corruptManifest() throws IOException {
+    AppEngineWebXmlProjectStageConfiguration config = configBuilder().build();
+    fullStage(config);
+
+    Files.write(
+        IncrementalStaging.getManifestFile(stagingDirectory),
+        "garbage".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertFalse(incrementalStaging.update(config));
+  }
+
+  @Test
+  public void testFileManifest_reusesHashForUnchangedFiles() throws IOException {
+    FileManifest first = FileManifest.scan(sourceDirectory, null);
+    FileManifest second = FileManifest.scan(sourceDirectory, first);
+
+    Assert.assertTrue(first.hasSameContent(second));
+    Assert.assertEquals(first.contentHash(), second.contentHash());
+    Assert.assertEquals(4, second.getEntries().size());
+    Assert.assertTrue(second.getEntries().containsKey("WEB-INF/classes/Foo.class"));
+  }
+
+  @Test
+  public void testFileManifest_detectsChanges() throws IOException {
+    FileManifest first = FileManifest.scan(sourceDirectory, null);
+    write(sourceDirectory, "index.html", "<html>changed</html>");
+    FileManifest second = FileManifest.scan(sourceDirectory, first);
+
+    Assert.assertEquals(Collections.singleton("index.html"), second.changedPaths(first));
+    Assert.assertNotEquals(first.contentHash(), second.contentHash());
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 Google LLC. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.maven.stage;
+
+import com.google.cloud.tools.appengine.configuration.AppEngineWebXmlProjectStageConfiguration;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JarStoreTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock private Log log;
+
+  private Path storeDirectory;
+  private JarStore jarStore;
+
+  @Before
+  public void setUp() throws IOException {
+    storeDirectory = tempFolder.newFolder("store").toPath();
+    jarStore = new JarStore(storeDirectory, log);
+  }
+
+  private static Path write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  private static String sha256(String content) {
+    return Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString();
+  }
+
+  @Test
+  public void testLinkAll_sharesJarsAcrossStagingDirectories() throws IOException {
+    Path first = tempFolder.newFolder("first").toPath();
+    Path second = tempFolder.newFolder("second").toPath();
+    write(first.resolve("WEB-INF/lib/common.jar"), "common");
+    write(first.resolve("WEB-INF/lib/only-first.jar"), "first");
+    write(first.resolve("WEB-INF/web.xml"), "<web-app/>");
+    write(second.resolve("WEB-INF/lib/common.jar"), "common");
+
+    Assert.assertEquals(0, jarStore.linkAll(first));
+    Assert.assertEquals(1, jarStore.linkAll(second));
+
+    Path entry = jarStore.getEntry(sha256("common"));
+    Assert.assertEquals("common", read(entry));
+    Assert.assertTrue(Files.isSameFile(entry, first.resolve("WEB-INF/lib/common.jar")));
+    Assert.assertTrue(Files.isSameFile(entry, second.resolve("WEB-INF/lib/common.jar")));
+    Assert.assertTrue(Files.exists(jarStore.getEntry(sha256("first"))));
+    Assert.assertFalse(Files.exists(jarStore.getEntry(sha256("<web-app/>"))));
+  }
+
+  @Test
+  public void testLinkAll_storeSurvivesStagingDirectoryDeletion() throws IOException {
+    Path staging = tempFolder.newFolder("staging").toPath();
+    write(staging.resolve("WEB-INF/lib/common.jar"), "common");
+    jarStore.linkAll(staging);
+
+    FileUtils.deleteDirectory(staging.toFile());
+
+    Assert.assertEquals("common", read(jarStore.getEntry(sha256("common"))));
+  }
+
+  @Test
+  public void testLinkFromStore_missingEntry() throws IOException {
+    Path target = tempFolder.getRoot().toPath().resolve("lib/missing.jar");
+
+    Assert.assertFalse(jarStore.linkFromStore(sha256("missing"), target));
+    Assert.assertFalse(Files.exists(target));
+  }
+
+  @Test
+  public void testLinkFromStore_replacesExistingFileWithoutWritingThrough() throws IOException {
+    Path staging = tempFolder.newFolder("staging").toPath();
+    Path jar = write(staging.resolve("WEB-INF/lib/common.jar"), "common");
+    jarStore.linkAll(staging);
+    Path other = write(jarStore.getEntry(sha256("other")), "other");
+
+    Assert.assertTrue(jarStore.linkFromStore(sha256("other"), jar));
+
+    Assert.assertTrue(Files.isSameFile(other, jar));
+    Assert.assertEquals("common", read(jarStore.getEntry(sha256("common"))));
+  }
+
+  @Test
+  public void testIncrementalStaging_linksChangedJarsFromStore() throws IOException {
+    Path source = tempFolder.newFolder("source").toPath();
+    Path staging = tempFolder.getRoot().toPath().resolve("staging");
+    write(source.resolve("WEB-INF/lib/bar.jar"), "bar");
+    FileUtils.copyDirectory(source.toFile(), staging.toFile());
+    jarStore.linkAll(staging);
+    AppEngineWebXmlProjectStageConfiguration config =
+        AppEngineWebXmlProjectStageConfiguration.builder(source, staging).build();
+    IncrementalStaging incrementalStaging = new IncrementalStaging(log, jarStore, null);
+    incrementalStaging.writeManifest(config);
+
+    Path stored = write(jarStore.getEntry(sha256("bar2")), "bar2");
+    write(source.resolve("WEB-INF/lib/bar.jar"), "bar2");
+
+    Assert.assertTrue(incrementalStaging.update(config));
+    Path staged = staging.resolve("WEB-INF/lib/bar.jar");
+    Assert.assertTrue(Files.isSameFile(stored, staged));
+    // the previously linked store entry was replaced, not overwritten
+    Assert.assertEquals("bar", read(jarStore.getEntry(sha256("bar"))));
+  }
+}